@@ -0,0 +1,49 @@
+-- Insert rate and primary key index size for fully random IDs (the previous format) against
+-- minute-bucketed IDs (IdGenerator). Uses scratch tables only; run against a throwaway database:
+--   psql -d payment_gateway_bench -f benchmark/id-insert-rate.sql
+-- Each batch of 200000 rows stands for one minute of inserts, so bucketed IDs share a prefix per batch.
+
+\timing on
+
+DROP TABLE IF EXISTS id_bench_random;
+DROP TABLE IF EXISTS id_bench_bucketed;
+CREATE TABLE id_bench_random (id VARCHAR(64) PRIMARY KEY, created_at TIMESTAMP NOT NULL DEFAULT now());
+CREATE TABLE id_bench_bucketed (id VARCHAR(64) PRIMARY KEY, created_at TIMESTAMP NOT NULL DEFAULT now());
+
+-- 16 random base62 characters, as the previous generator produced
+CREATE OR REPLACE FUNCTION pg_temp.random_base62(len INTEGER) RETURNS TEXT AS $$
+    SELECT string_agg(substr('ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789',
+                             1 + floor(random() * 62)::INTEGER, 1), '')
+    FROM generate_series(1, len)
+$$ LANGUAGE sql VOLATILE;
+
+-- 2 base36 characters of the minute, then 14 random base62 characters
+CREATE OR REPLACE FUNCTION pg_temp.bucketed_id(minute INTEGER) RETURNS TEXT AS $$
+    SELECT substr('0123456789abcdefghijklmnopqrstuvwxyz', 1 + (minute / 36) % 36, 1)
+        || substr('0123456789abcdefghijklmnopqrstuvwxyz', 1 + minute % 36, 1)
+        || pg_temp.random_base62(14)
+$$ LANGUAGE sql VOLATILE;
+
+\echo 'Random IDs'
+INSERT INTO id_bench_random (id) SELECT 'pay_' || pg_temp.random_base62(16) FROM generate_series(1, 200000);
+INSERT INTO id_bench_random (id) SELECT 'pay_' || pg_temp.random_base62(16) FROM generate_series(1, 200000);
+INSERT INTO id_bench_random (id) SELECT 'pay_' || pg_temp.random_base62(16) FROM generate_series(1, 200000);
+INSERT INTO id_bench_random (id) SELECT 'pay_' || pg_temp.random_base62(16) FROM generate_series(1, 200000);
+INSERT INTO id_bench_random (id) SELECT 'pay_' || pg_temp.random_base62(16) FROM generate_series(1, 200000);
+
+\echo 'Minute-bucketed IDs'
+INSERT INTO id_bench_bucketed (id) SELECT 'pay_' || pg_temp.bucketed_id(1) FROM generate_series(1, 200000);
+INSERT INTO id_bench_bucketed (id) SELECT 'pay_' || pg_temp.bucketed_id(2) FROM generate_series(1, 200000);
+INSERT INTO id_bench_bucketed (id) SELECT 'pay_' || pg_temp.bucketed_id(3) FROM generate_series(1, 200000);
+INSERT INTO id_bench_bucketed (id) SELECT 'pay_' || pg_temp.bucketed_id(4) FROM generate_series(1, 200000);
+INSERT INTO id_bench_bucketed (id) SELECT 'pay_' || pg_temp.bucketed_id(5) FROM generate_series(1, 200000);
+
+\timing off
+
+-- Page splits in random order leave the index larger and less densely packed
+SELECT 'random' AS ids, pg_size_pretty(pg_relation_size('id_bench_random_pkey')) AS pkey_size
+UNION ALL
+SELECT 'bucketed', pg_size_pretty(pg_relation_size('id_bench_bucketed_pkey'));
+
+DROP TABLE id_bench_random;
+DROP TABLE id_bench_bucketed;
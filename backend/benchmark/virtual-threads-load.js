@@ -0,0 +1,65 @@
+// Ramps request rate against a running API node to find the concurrency at which the database
+// connection pool runs out, once with platform threads and once with virtual threads:
+//
+//   RATE_LIMIT_ENABLED=false VIRTUAL_THREADS_ENABLED=false docker-compose up -d --build
+//   k6 run backend/benchmark/virtual-threads-load.js
+//   RATE_LIMIT_ENABLED=false VIRTUAL_THREADS_ENABLED=true docker-compose build --build-arg JAVA_VERSION=21
+//   RATE_LIMIT_ENABLED=false VIRTUAL_THREADS_ENABLED=true docker-compose up -d
+//   k6 run backend/benchmark/virtual-threads-load.js
+//
+// While a run is in progress, watch pool saturation on the management port:
+//   docker-compose exec api curl -s localhost:8081/actuator/metrics/hikaricp.connections.pending
+//
+// Compare the request rate and the number of in-flight requests (k6 "vus") at which p95 latency climbs
+// and hikaricp.connections.pending stays above zero.
+
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8000';
+const HEADERS = {
+  'Content-Type': 'application/json',
+  'X-Api-Key': __ENV.API_KEY || 'key_test_abc123',
+  'X-Api-Secret': __ENV.API_SECRET || 'secret_test_xyz789',
+};
+
+export const options = {
+  scenarios: {
+    ramp: {
+      executor: 'ramping-arrival-rate',
+      startRate: 50,
+      timeUnit: '1s',
+      preAllocatedVUs: 200,
+      maxVUs: Number(__ENV.MAX_VUS || 2000),
+      stages: [
+        { target: 200, duration: '1m' },
+        { target: 500, duration: '1m' },
+        { target: 1000, duration: '1m' },
+        { target: 2000, duration: '1m' },
+        { target: 2000, duration: '1m' },
+      ],
+    },
+  },
+  thresholds: {
+    http_req_failed: ['rate<0.01'],
+    http_req_duration: ['p(95)<1000'],
+  },
+};
+
+// One write and two reads per iteration, roughly the mix of a checkout followed by status polling
+export default function () {
+  const created = http.post(`${BASE_URL}/api/v1/orders`,
+      JSON.stringify({ amount: 50000, currency: 'INR', receipt: `load-${__VU}-${__ITER}` }),
+      { headers: HEADERS, tags: { name: 'create order' } });
+  check(created, { 'order created': (r) => r.status === 201 });
+  if (created.status !== 201) {
+    return;
+  }
+
+  const orderId = created.json('id');
+  const fetched = http.get(`${BASE_URL}/api/v1/orders/${orderId}`, { headers: HEADERS, tags: { name: 'get order' } });
+  check(fetched, { 'order fetched': (r) => r.status === 200 });
+
+  const listed = http.get(`${BASE_URL}/api/v1/orders?limit=20`, { headers: HEADERS, tags: { name: 'list orders' } });
+  check(listed, { 'orders listed': (r) => r.status === 200 });
+}
@@ -9,6 +9,7 @@ CREATE TABLE IF NOT EXISTS merchants (
     api_secret VARCHAR(255) NOT NULL,
     webhook_url VARCHAR(500),
     webhook_secret VARCHAR(64),
+    webhook_batching BOOLEAN NOT NULL DEFAULT false,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
@@ -38,6 +39,7 @@ CREATE TABLE IF NOT EXISTS payments (
     card_cvv VARCHAR(4),
     status VARCHAR(20) NOT NULL DEFAULT 'pending',
     captured BOOLEAN DEFAULT false,
+    refunded_amount INTEGER NOT NULL DEFAULT 0 CHECK (refunded_amount >= 0 AND refunded_amount <= amount),
     error_code VARCHAR(50),
     error_description TEXT,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
@@ -65,7 +67,7 @@ CREATE TABLE IF NOT EXISTS webhook_logs (
     id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
     merchant_id UUID NOT NULL REFERENCES merchants(id),
     event VARCHAR(50) NOT NULL,
-    payload JSONB NOT NULL,
+    payload BYTEA NOT NULL,
     status VARCHAR(20) NOT NULL DEFAULT 'pending',
     attempts INTEGER DEFAULT 0,
     last_attempt_at TIMESTAMP,
@@ -88,13 +90,15 @@ CREATE TABLE IF NOT EXISTS idempotency_keys (
 );
 
 -- Create indexes
-CREATE INDEX IF NOT EXISTS idx_orders_merchant_id ON orders(merchant_id);
+-- Listing indexes for keyset pagination (also cover lookups by merchant_id)
+CREATE INDEX IF NOT EXISTS idx_orders_merchant_created ON orders(merchant_id, created_at DESC, id DESC);
 CREATE INDEX IF NOT EXISTS idx_payments_order_id ON payments(order_id);
-CREATE INDEX IF NOT EXISTS idx_payments_merchant_id ON payments(merchant_id);
+CREATE INDEX IF NOT EXISTS idx_payments_merchant_created ON payments(merchant_id, created_at DESC, id DESC);
 CREATE INDEX IF NOT EXISTS idx_refunds_payment_id ON refunds(payment_id);
-CREATE INDEX IF NOT EXISTS idx_refunds_merchant_id ON refunds(merchant_id);
+CREATE INDEX IF NOT EXISTS idx_refunds_merchant_created ON refunds(merchant_id, created_at, id);
 CREATE INDEX IF NOT EXISTS idx_webhook_logs_merchant_id ON webhook_logs(merchant_id);
 CREATE INDEX IF NOT EXISTS idx_webhook_logs_status ON webhook_logs(status);
+CREATE INDEX IF NOT EXISTS idx_idempotency_keys_expires_at ON idempotency_keys(expires_at);
 CREATE INDEX IF NOT EXISTS idx_webhook_logs_next_retry ON webhook_logs(next_retry_at) WHERE status = 'pending';
 
 -- Insert test merchant
@@ -0,0 +1,41 @@
+-- Schema upgrades for databases created from an earlier init.sql
+-- init.sql only runs when the Postgres volume is first created; apply this to an existing database instead.
+-- Every statement is safe to run more than once.
+
+-- webhook_logs.payload: JSONB -> BYTEA (payloads are now stored as the exact bytes that are signed and sent)
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_name = 'webhook_logs' AND column_name = 'payload' AND data_type = 'jsonb') THEN
+        ALTER TABLE webhook_logs ALTER COLUMN payload TYPE BYTEA USING convert_to(payload::text, 'UTF8');
+    END IF;
+END $$;
+
+-- payments.refunded_amount: running total reserved by refunds, backfilled from the refunds already recorded.
+-- Payments that earlier concurrent refunds pushed past their amount are capped at it, so they accept no more refunds.
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM information_schema.columns
+                   WHERE table_name = 'payments' AND column_name = 'refunded_amount') THEN
+        ALTER TABLE payments ADD COLUMN refunded_amount INTEGER NOT NULL DEFAULT 0;
+        UPDATE payments p SET refunded_amount = LEAST(p.amount, r.total)
+        FROM (SELECT payment_id, SUM(amount) AS total FROM refunds
+              WHERE status IN ('pending', 'processed') GROUP BY payment_id) r
+        WHERE r.payment_id = p.id;
+        ALTER TABLE payments ADD CONSTRAINT payments_refunded_amount_check
+            CHECK (refunded_amount >= 0 AND refunded_amount <= amount);
+    END IF;
+END $$;
+
+-- merchants.webhook_batching: opt-in batched webhook delivery, off for existing merchants
+ALTER TABLE merchants ADD COLUMN IF NOT EXISTS webhook_batching BOOLEAN NOT NULL DEFAULT false;
+
+-- Refund exports read in (created_at, id) order; this index serves them without sorting and covers merchant_id lookups
+CREATE INDEX IF NOT EXISTS idx_refunds_merchant_created ON refunds(merchant_id, created_at, id);
+DROP INDEX IF EXISTS idx_refunds_merchant_id;
+
+-- Keyset listing indexes for orders and payments; they also cover lookups by merchant_id
+CREATE INDEX IF NOT EXISTS idx_orders_merchant_created ON orders(merchant_id, created_at DESC, id DESC);
+DROP INDEX IF EXISTS idx_orders_merchant_id;
+CREATE INDEX IF NOT EXISTS idx_payments_merchant_created ON payments(merchant_id, created_at DESC, id DESC);
+DROP INDEX IF EXISTS idx_payments_merchant_id;
@@ -19,4 +19,133 @@ public class AppConfig {
     
     @Value("${app.webhook-retry-intervals-test:false}")
     private boolean webhookRetryIntervalsTest;
+    
+    @Value("${app.worker.payment.concurrency:8}")
+    private int paymentWorkerConcurrency;
+    
+    @Value("${app.worker.refund.concurrency:4}")
+    private int refundWorkerConcurrency;
+    
+    @Value("${app.worker.webhook.concurrency:1000}")
+    private int webhookWorkerConcurrency;
+    
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreadsEnabled;
+    
+    @Value("${app.webhook.max-in-flight-per-host:50}")
+    private int webhookMaxInFlightPerHost;
+    
+    @Value("${app.webhook.max-in-flight-per-merchant:20}")
+    private int webhookMaxInFlightPerMerchant;
+    
+    @Value("${app.webhook.circuit.failure-threshold:5}")
+    private int webhookCircuitFailureThreshold;
+    
+    @Value("${app.webhook.circuit.open-ms:30000}")
+    private long webhookCircuitOpenMs;
+    
+    @Value("${app.webhook.timeout-ms:5000}")
+    private long webhookTimeoutMs;
+    
+    @Value("${app.webhook.host-busy-retry-ms:1000}")
+    private long webhookHostBusyRetryMs;
+    
+    @Value("${app.webhook.batch.window-ms:200}")
+    private long webhookBatchWindowMs;
+    
+    @Value("${app.webhook.batch.max-size:50}")
+    private int webhookBatchMaxSize;
+    
+    @Value("${app.worker.backoff-ms:500}")
+    private long workerBackoffMs;
+    
+    @Value("${app.worker.batch-size:20}")
+    private int workerBatchSize;
+    
+    @Value("${app.worker.flush-interval-ms:100}")
+    private long workerFlushIntervalMs;
+    
+    @Value("${app.worker.shutdown-timeout-ms:15000}")
+    private long workerShutdownTimeoutMs;
+    
+    @Value("${app.worker.merchant-cache-ttl-ms:60000}")
+    private long merchantCacheTtlMs;
+    
+    @Value("${app.queue.reliable:true}")
+    private boolean reliableQueue;
+    
+    @Value("${app.queue.visibility-timeout-ms:60000}")
+    private long queueVisibilityTimeoutMs;
+    
+    @Value("${app.queue.heartbeat-interval-ms:10000}")
+    private long queueHeartbeatIntervalMs;
+    
+    @Value("${app.queue.reaper-interval-ms:15000}")
+    private long queueReaperIntervalMs;
+    
+    @Value("${app.queue.delayed-promote-batch-size:500}")
+    private int delayedPromoteBatchSize;
+    
+    @Value("${app.auth.cache.ttl-ms:60000}")
+    private long authCacheTtlMs;
+    
+    @Value("${app.auth.cache.max-size:10000}")
+    private int authCacheMaxSize;
+    
+    @Value("${app.idempotency.ttl-ms:86400000}")
+    private long idempotencyTtlMs;
+    
+    @Value("${app.idempotency.lock-ms:30000}")
+    private long idempotencyLockMs;
+    
+    @Value("${app.idempotency.wait-ms:2000}")
+    private long idempotencyWaitMs;
+    
+    @Value("${app.idempotency.sweep-interval-ms:60000}")
+    private long idempotencySweepIntervalMs;
+    
+    @Value("${app.idempotency.sweep-batch-size:1000}")
+    private int idempotencySweepBatchSize;
+    
+    @Value("${app.idempotency.sweep-max-batches:100}")
+    private int idempotencySweepMaxBatches;
+    
+    @Value("${app.idempotency.sweep-max-duration-ms:10000}")
+    private long idempotencySweepMaxDurationMs;
+    
+    @Value("${app.export.fetch-size:1000}")
+    private int exportFetchSize;
+    
+    @Value("${app.export.max-concurrent:2}")
+    private int exportMaxConcurrent;
+    
+    @Value("${app.export.max-duration-ms:600000}")
+    private long exportMaxDurationMs;
+    
+    @Value("${app.orders.batch-max-size:500}")
+    private int orderBatchMaxSize;
+    
+    @Value("${app.payments.wait-timeout-ms:25000}")
+    private long paymentWaitTimeoutMs;
+    
+    @Value("${app.rate-limit.enabled:true}")
+    private boolean rateLimitEnabled;
+    
+    @Value("${app.rate-limit.read.per-second:100}")
+    private int rateLimitReadPerSecond;
+    
+    @Value("${app.rate-limit.read.burst:200}")
+    private int rateLimitReadBurst;
+    
+    @Value("${app.rate-limit.write.per-second:50}")
+    private int rateLimitWritePerSecond;
+    
+    @Value("${app.rate-limit.write.burst:100}")
+    private int rateLimitWriteBurst;
+    
+    @Value("${app.rate-limit.export.per-second:1}")
+    private int rateLimitExportPerSecond;
+    
+    @Value("${app.rate-limit.export.burst:2}")
+    private int rateLimitExportBurst;
 }
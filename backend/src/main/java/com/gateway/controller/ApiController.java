@@ -1,18 +1,25 @@
 package com.gateway.controller;
 
+import com.gateway.config.AppConfig;
 import com.gateway.dto.*;
 import com.gateway.model.Merchant;
+import com.gateway.service.IdempotencyConflictException;
 import com.gateway.service.OrderService;
 import com.gateway.service.PaymentService;
 import com.gateway.service.RefundService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
+@Profile("!worker")
 @RequestMapping("/api/v1")
 @RequiredArgsConstructor
 public class ApiController {
@@ -20,6 +27,7 @@ public class ApiController {
     private final OrderService orderService;
     private final PaymentService paymentService;
     private final RefundService refundService;
+    private final AppConfig appConfig;
     
     @PostMapping("/orders")
     public ResponseEntity<OrderResponse> createOrder(
@@ -33,6 +41,22 @@ public class ApiController {
         }
     }
     
+    // Results are returned per item in request order; invalid items do not prevent the others from being created
+    @PostMapping("/orders/batch")
+    public ResponseEntity<?> createOrders(
+            @RequestAttribute("merchant") Merchant merchant,
+            @RequestBody List<CreateOrderRequest> requests) {
+        try {
+            List<BatchOrderResult> response = orderService.createOrders(merchant, requests);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            ErrorResponse errorResponse = new ErrorResponse(
+                    new ErrorResponse.ErrorDetail("BAD_REQUEST_ERROR", e.getMessage())
+            );
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+    
     @GetMapping("/orders/{id}")
     public ResponseEntity<OrderResponse> getOrder(
             @RequestAttribute("merchant") Merchant merchant,
@@ -45,11 +69,20 @@ public class ApiController {
         }
     }
     
+    // Returns one page as a JSON array; the cursor for the next page, if any, is in X-Next-Cursor
     @GetMapping("/orders")
-    public ResponseEntity<List<OrderResponse>> getOrders(
-            @RequestAttribute("merchant") Merchant merchant) {
-        List<OrderResponse> response = orderService.getOrders(merchant);
-        return ResponseEntity.ok(response);
+    public ResponseEntity<?> getOrders(
+            @RequestAttribute("merchant") Merchant merchant,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String after) {
+        try {
+            return pageResponse(orderService.getOrders(merchant, limit, after));
+        } catch (Exception e) {
+            ErrorResponse errorResponse = new ErrorResponse(
+                    new ErrorResponse.ErrorDetail("BAD_REQUEST_ERROR", e.getMessage())
+            );
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
     }
     
     @PostMapping("/payments")
@@ -60,6 +93,33 @@ public class ApiController {
         try {
             PaymentResponse response = paymentService.createPayment(merchant, request, idempotencyKey);
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        } catch (IdempotencyConflictException e) {
+            ErrorResponse errorResponse = new ErrorResponse(
+                    new ErrorResponse.ErrorDetail("IDEMPOTENCY_CONFLICT", e.getMessage())
+            );
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(errorResponse);
+        } catch (Exception e) {
+            ErrorResponse errorResponse = new ErrorResponse(
+                    new ErrorResponse.ErrorDetail("BAD_REQUEST_ERROR", e.getMessage())
+            );
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+    
+    // Creates the order and its payment in one call
+    @PostMapping("/checkout")
+    public ResponseEntity<?> checkout(
+            @RequestAttribute("merchant") Merchant merchant,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @RequestBody CheckoutRequest request) {
+        try {
+            CheckoutResponse response = paymentService.checkout(merchant, request, idempotencyKey);
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        } catch (IdempotencyConflictException e) {
+            ErrorResponse errorResponse = new ErrorResponse(
+                    new ErrorResponse.ErrorDetail("IDEMPOTENCY_CONFLICT", e.getMessage())
+            );
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(errorResponse);
         } catch (Exception e) {
             ErrorResponse errorResponse = new ErrorResponse(
                     new ErrorResponse.ErrorDetail("BAD_REQUEST_ERROR", e.getMessage())
@@ -80,11 +140,45 @@ public class ApiController {
         }
     }
     
+    // Long-poll: answers as soon as the payment leaves pending, or with its current state after the wait timeout
+    @GetMapping("/payments/{id}/wait")
+    public DeferredResult<ResponseEntity<PaymentResponse>> waitForPayment(
+            @RequestAttribute("merchant") Merchant merchant,
+            @PathVariable String id) {
+        DeferredResult<ResponseEntity<PaymentResponse>> response = new DeferredResult<>(appConfig.getPaymentWaitTimeoutMs());
+        CompletableFuture<PaymentResponse> payment = paymentService.awaitFinalStatus(merchant, id);
+        
+        payment.whenComplete((result, error) -> {
+            if (error instanceof CancellationException) {
+                return;
+            }
+            response.setResult(error == null ? ResponseEntity.ok(result) : ResponseEntity.notFound().build());
+        });
+        response.onTimeout(() -> {
+            payment.cancel(false);
+            try {
+                response.setResult(ResponseEntity.ok(paymentService.getPayment(merchant, id)));
+            } catch (Exception e) {
+                response.setResult(ResponseEntity.notFound().build());
+            }
+        });
+        response.onCompletion(() -> payment.cancel(false));
+        return response;
+    }
+    
     @GetMapping("/payments")
-    public ResponseEntity<List<PaymentResponse>> getPayments(
-            @RequestAttribute("merchant") Merchant merchant) {
-        List<PaymentResponse> response = paymentService.getPayments(merchant);
-        return ResponseEntity.ok(response);
+    public ResponseEntity<?> getPayments(
+            @RequestAttribute("merchant") Merchant merchant,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String after) {
+        try {
+            return pageResponse(paymentService.getPayments(merchant, limit, after));
+        } catch (Exception e) {
+            ErrorResponse errorResponse = new ErrorResponse(
+                    new ErrorResponse.ErrorDetail("BAD_REQUEST_ERROR", e.getMessage())
+            );
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
     }
     
     @PostMapping("/payments/{id}/capture")
@@ -130,4 +224,12 @@ public class ApiController {
             return ResponseEntity.notFound().build();
         }
     }
+    
+    private <T> ResponseEntity<List<T>> pageResponse(CursorPage<T> page) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            builder.header("X-Next-Cursor", page.getNextCursor());
+        }
+        return builder.body(page.getData());
+    }
 }
@@ -0,0 +1,135 @@
+package com.gateway.controller;
+
+import com.gateway.dto.ErrorResponse;
+import com.gateway.model.Merchant;
+import com.gateway.service.ExportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.RejectedExecutionException;
+
+@RestController
+@Profile("!worker")
+@RequestMapping("/api/v1/exports")
+@RequiredArgsConstructor
+public class ExportController {
+    
+    // Suggested wait before retrying when every export slot on this node is busy
+    private static final int BUSY_RETRY_AFTER_SECONDS = 30;
+    // The export aborts itself at its deadline; the request stays open a little longer for it to do so
+    private static final long TIMEOUT_GRACE_MS = 5000;
+    
+    private final ExportService exportService;
+    
+    @GetMapping("/payments")
+    public ResponseEntity<ResponseBodyEmitter> exportPayments(
+            @RequestAttribute("merchant") Merchant merchant,
+            @RequestParam(defaultValue = "ndjson") String format) {
+        return stream("payments", format,
+                (exportFormat, out) -> exportService.exportPayments(merchant.getId(), exportFormat, out));
+    }
+    
+    @GetMapping("/refunds")
+    public ResponseEntity<ResponseBodyEmitter> exportRefunds(
+            @RequestAttribute("merchant") Merchant merchant,
+            @RequestParam(defaultValue = "ndjson") String format) {
+        return stream("refunds", format,
+                (exportFormat, out) -> exportService.exportRefunds(merchant.getId(), exportFormat, out));
+    }
+    
+    @GetMapping("/orders")
+    public ResponseEntity<ResponseBodyEmitter> exportOrders(
+            @RequestAttribute("merchant") Merchant merchant,
+            @RequestParam(defaultValue = "ndjson") String format) {
+        return stream("orders", format,
+                (exportFormat, out) -> exportService.exportOrders(merchant.getId(), exportFormat, out));
+    }
+    
+    private interface Exporter {
+        void export(ExportService.Format format, OutputStream out) throws IOException;
+    }
+    
+    // Hands each chunk written by the export to the emitter, which writes it to the response on this thread
+    private static final class EmitterOutputStream extends OutputStream {
+        private final ResponseBodyEmitter emitter;
+        private final MediaType mediaType;
+        
+        private EmitterOutputStream(ResponseBodyEmitter emitter, MediaType mediaType) {
+            this.emitter = emitter;
+            this.mediaType = mediaType;
+        }
+        
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len > 0) {
+                emitter.send(Arrays.copyOfRange(b, off, off + len), mediaType);
+            }
+        }
+    }
+    
+    // The body is always an emitter: MVC only streams it when the declared body type says so
+    private ResponseEntity<ResponseBodyEmitter> stream(String name, String format, Exporter exporter) {
+        ExportService.Format exportFormat;
+        try {
+            exportFormat = ExportService.parseFormat(format);
+        } catch (Exception e) {
+            ErrorResponse errorResponse = new ErrorResponse(
+                    new ErrorResponse.ErrorDetail("BAD_REQUEST_ERROR", e.getMessage())
+            );
+            return ResponseEntity.badRequest().body(emit(errorResponse));
+        }
+        
+        boolean csv = exportFormat == ExportService.Format.CSV;
+        MediaType mediaType = csv ? new MediaType("text", "csv") : new MediaType("application", "x-ndjson");
+        
+        // Rows are written from an export thread as they are read from the database
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(exportService.getMaxDurationMs() + TIMEOUT_GRACE_MS);
+        try {
+            exportService.submit(() -> {
+                try {
+                    exporter.export(exportFormat, new EmitterOutputStream(emitter, mediaType));
+                    emitter.complete();
+                } catch (Exception e) {
+                    // Ends the response without its final chunk, so the client can tell the export is incomplete
+                    emitter.completeWithError(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            ErrorResponse errorResponse = new ErrorResponse(
+                    new ErrorResponse.ErrorDetail("EXPORT_BUSY", "Too many exports in progress, retry later")
+            );
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(BUSY_RETRY_AFTER_SECONDS))
+                    .body(emit(errorResponse));
+        }
+        return ResponseEntity.ok()
+                .contentType(mediaType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + name + (csv ? ".csv" : ".ndjson") + "\"")
+                .body(emitter);
+    }
+    
+    private static ResponseBodyEmitter emit(ErrorResponse errorResponse) {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter();
+        try {
+            emitter.send(errorResponse, MediaType.APPLICATION_JSON);
+            emitter.complete();
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+}
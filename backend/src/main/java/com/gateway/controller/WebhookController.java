@@ -7,6 +7,7 @@ import com.gateway.model.WebhookLog;
 import com.gateway.repository.WebhookLogRepository;
 import com.gateway.service.JobQueueService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.http.ResponseEntity;
@@ -19,6 +20,7 @@ import java.util.Map;
 import java.util.stream.Collectors;
 
 @RestController
+@Profile("!worker")
 @RequestMapping("/api/v1/webhooks")
 @RequiredArgsConstructor
 public class WebhookController {
@@ -0,0 +1,16 @@
+package com.gateway.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchOrderResult {
+    private Integer index;
+    private OrderResponse order;
+    private ErrorResponse.ErrorDetail error;
+}
@@ -0,0 +1,15 @@
+package com.gateway.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CheckoutRequest {
+    private CreateOrderRequest order;
+    
+    // order_id is ignored; the payment is made against the order created by this request
+    private CreatePaymentRequest payment;
+}
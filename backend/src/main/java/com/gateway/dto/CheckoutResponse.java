@@ -0,0 +1,13 @@
+package com.gateway.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CheckoutResponse {
+    private OrderResponse order;
+    private PaymentResponse payment;
+}
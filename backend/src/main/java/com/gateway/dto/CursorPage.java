@@ -0,0 +1,13 @@
+package com.gateway.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> data;
+    private String nextCursor;
+}
@@ -1,12 +1,14 @@
 package com.gateway.filter;
 
 import com.gateway.model.Merchant;
-import com.gateway.repository.MerchantRepository;
+import com.gateway.service.MerchantCredentialCache;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
@@ -14,10 +16,12 @@ import java.io.IOException;
 import java.util.Optional;
 
 @Component
+@Profile("!worker")
+@Order(1)
 @RequiredArgsConstructor
 public class AuthenticationFilter extends OncePerRequestFilter {
     
-    private final MerchantRepository merchantRepository;
+    private final MerchantCredentialCache merchantCredentialCache;
     
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
@@ -47,9 +51,9 @@ public class AuthenticationFilter extends OncePerRequestFilter {
             return;
         }
         
-        Optional<Merchant> merchantOpt = merchantRepository.findByApiKey(apiKey);
+        Optional<Merchant> merchantOpt = merchantCredentialCache.authenticate(apiKey, apiSecret);
         
-        if (merchantOpt.isEmpty() || !merchantOpt.get().getApiSecret().equals(apiSecret)) {
+        if (merchantOpt.isEmpty()) {
             response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
             response.setContentType("application/json");
             response.getWriter().write("{\"error\":{\"code\":\"AUTHENTICATION_ERROR\",\"description\":\"Invalid API credentials\"}}");
@@ -0,0 +1,59 @@
+package com.gateway.filter;
+
+import com.gateway.config.AppConfig;
+import com.gateway.model.Merchant;
+import com.gateway.service.RateLimiter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+// Runs after AuthenticationFilter, which sets the merchant; unauthenticated paths are not limited
+@Component
+@Profile("!worker")
+@Order(2)
+@RequiredArgsConstructor
+public class RateLimitFilter extends OncePerRequestFilter {
+    
+    private final RateLimiter rateLimiter;
+    private final AppConfig appConfig;
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        
+        Object merchant = request.getAttribute("merchant");
+        if (!appConfig.isRateLimitEnabled() || !(merchant instanceof Merchant)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        
+        RateLimiter.Permit permit = rateLimiter.tryAcquire(((Merchant) merchant).getId(), endpointClass(request));
+        if (!permit.allowed()) {
+            response.setStatus(429);
+            response.setHeader("Retry-After", String.valueOf(Math.max(1, (permit.retryAfterMs() + 999) / 1000)));
+            response.setContentType("application/json");
+            response.getWriter().write("{\"error\":{\"code\":\"RATE_LIMIT_ERROR\",\"description\":\"Too many requests\"}}");
+            return;
+        }
+        
+        filterChain.doFilter(request, response);
+    }
+    
+    private static RateLimiter.EndpointClass endpointClass(HttpServletRequest request) {
+        if (request.getRequestURI().startsWith("/api/v1/exports/")) {
+            return RateLimiter.EndpointClass.EXPORT;
+        }
+        if ("GET".equals(request.getMethod())) {
+            return RateLimiter.EndpointClass.READ;
+        }
+        return RateLimiter.EndpointClass.WRITE;
+    }
+}
@@ -3,7 +3,7 @@ package com.gateway.model;
 import com.fasterxml.jackson.databind.JsonNode;
 import jakarta.persistence.*;
 import lombok.Data;
-import org.hibernate.annotations.CreationTimestamp;
+import lombok.EqualsAndHashCode;
 import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.type.SqlTypes;
 
@@ -14,8 +14,9 @@ import java.util.UUID;
 @Entity
 @Table(name = "idempotency_keys")
 @Data
+@EqualsAndHashCode(callSuper = false)
 @IdClass(IdempotencyKey.IdempotencyKeyId.class)
-public class IdempotencyKey {
+public class IdempotencyKey extends AssignedIdEntity<IdempotencyKey.IdempotencyKeyId> {
     @Id
     @Column(length = 255)
     private String key;
@@ -28,7 +29,6 @@ public class IdempotencyKey {
     @Column(nullable = false, columnDefinition = "jsonb")
     private JsonNode response;
 
-    @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
@@ -39,6 +39,14 @@ public class IdempotencyKey {
     @JoinColumn(name = "merchant_id", insertable = false, updatable = false)
     private Merchant merchant;
 
+    @Override
+    public IdempotencyKeyId getId() {
+        IdempotencyKeyId id = new IdempotencyKeyId();
+        id.setKey(key);
+        id.setMerchantId(merchantId);
+        return id;
+    }
+
     @Data
     public static class IdempotencyKeyId implements Serializable {
         private String key;
@@ -1,5 +1,6 @@
 package com.gateway.model;
 
+import com.gateway.service.MerchantChangeListener;
 import jakarta.persistence.*;
 import lombok.Data;
 import org.hibernate.annotations.CreationTimestamp;
@@ -9,6 +10,7 @@ import java.util.UUID;
 
 @Entity
 @Table(name = "merchants")
+@EntityListeners(MerchantChangeListener.class)
 @Data
 public class Merchant {
     @Id
@@ -33,6 +35,9 @@ public class Merchant {
     @Column(name = "webhook_secret", length = 64)
     private String webhookSecret;
 
+    @Column(name = "webhook_batching", nullable = false)
+    private Boolean webhookBatching = false;
+
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
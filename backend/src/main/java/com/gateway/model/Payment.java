@@ -2,8 +2,7 @@ package com.gateway.model;
 
 import jakarta.persistence.*;
 import lombok.Data;
-import org.hibernate.annotations.CreationTimestamp;
-import org.hibernate.annotations.UpdateTimestamp;
+import lombok.EqualsAndHashCode;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
@@ -11,7 +10,8 @@ import java.util.UUID;
 @Entity
 @Table(name = "payments")
 @Data
-public class Payment {
+@EqualsAndHashCode(callSuper = false)
+public class Payment extends AssignedIdEntity<String> {
     @Id
     @Column(length = 64)
     private String id;
@@ -49,17 +49,19 @@ public class Payment {
     @Column(nullable = false)
     private Boolean captured = false;
 
+    // Maintained only by PaymentRepository.reserveRefundAmount, never by entity saves
+    @Column(name = "refunded_amount", nullable = false, updatable = false)
+    private Integer refundedAmount = 0;
+
     @Column(name = "error_code", length = 50)
     private String errorCode;
 
     @Column(name = "error_description", columnDefinition = "TEXT")
     private String errorDescription;
 
-    @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
-    @UpdateTimestamp
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
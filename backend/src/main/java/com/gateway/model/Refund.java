@@ -2,7 +2,7 @@ package com.gateway.model;
 
 import jakarta.persistence.*;
 import lombok.Data;
-import org.hibernate.annotations.CreationTimestamp;
+import lombok.EqualsAndHashCode;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
@@ -10,7 +10,8 @@ import java.util.UUID;
 @Entity
 @Table(name = "refunds")
 @Data
-public class Refund {
+@EqualsAndHashCode(callSuper = false)
+public class Refund extends AssignedIdEntity<String> {
     @Id
     @Column(length = 64)
     private String id;
@@ -30,7 +31,6 @@ public class Refund {
     @Column(nullable = false, length = 20)
     private String status = "pending";
 
-    @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
@@ -1,11 +1,8 @@
 package com.gateway.model;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import jakarta.persistence.*;
 import lombok.Data;
 import org.hibernate.annotations.CreationTimestamp;
-import org.hibernate.annotations.JdbcTypeCode;
-import org.hibernate.type.SqlTypes;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
@@ -24,9 +21,9 @@ public class WebhookLog {
     @Column(nullable = false, length = 50)
     private String event;
 
-    @JdbcTypeCode(SqlTypes.JSON)
-    @Column(nullable = false, columnDefinition = "jsonb")
-    private JsonNode payload;
+    // Serialized once when the event is created; every delivery attempt sends and signs these exact bytes
+    @Column(nullable = false, columnDefinition = "bytea")
+    private byte[] payload;
 
     @Column(nullable = false, length = 20)
     private String status = "pending";
@@ -0,0 +1,27 @@
+package com.gateway.repository;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+final class BatchUpdates {
+    
+    private BatchUpdates() {
+    }
+    
+    // The items whose statement changed a row, from JdbcTemplate's per-batch update counts
+    static <T> List<T> updated(List<T> items, int[][] counts) {
+        List<T> updated = new ArrayList<>(items.size());
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                // Some drivers report success without a row count
+                if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+                    updated.add(items.get(index));
+                }
+                index++;
+            }
+        }
+        return updated;
+    }
+}
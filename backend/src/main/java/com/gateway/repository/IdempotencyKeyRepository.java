@@ -19,4 +19,11 @@ public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey,
     @Transactional
     @Query("DELETE FROM IdempotencyKey ik WHERE ik.expiresAt < :dateTime")
     void deleteExpiredKeys(LocalDateTime dateTime);
+    
+    // Bounded delete so a large backlog is removed in short transactions
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM idempotency_keys WHERE ctid IN " +
+            "(SELECT ctid FROM idempotency_keys WHERE expires_at < :dateTime LIMIT :limit)", nativeQuery = true)
+    int deleteExpiredKeysBatch(LocalDateTime dateTime, int limit);
 }
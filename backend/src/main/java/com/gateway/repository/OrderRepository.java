@@ -2,14 +2,24 @@ package com.gateway.repository;
 
 import com.gateway.model.Order;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, String> {
-    List<Order> findByMerchantIdOrderByCreatedAtDesc(UUID merchantId);
+    // Keyset pages, newest first; the row comparison is served by idx_orders_merchant_created
+    @Query(value = "SELECT * FROM orders WHERE merchant_id = :merchantId " +
+            "ORDER BY created_at DESC, id DESC LIMIT :limit", nativeQuery = true)
+    List<Order> findFirstPage(UUID merchantId, int limit);
+    
+    @Query(value = "SELECT * FROM orders WHERE merchant_id = :merchantId AND (created_at, id) < (:createdAt, :id) " +
+            "ORDER BY created_at DESC, id DESC LIMIT :limit", nativeQuery = true)
+    List<Order> findPageAfter(UUID merchantId, LocalDateTime createdAt, String id, int limit);
+    
     Optional<Order> findByIdAndMerchantId(String id, UUID merchantId);
 }
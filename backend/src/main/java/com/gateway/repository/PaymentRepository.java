@@ -2,15 +2,33 @@ package com.gateway.repository;
 
 import com.gateway.model.Payment;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
-public interface PaymentRepository extends JpaRepository<Payment, String> {
-    List<Payment> findByMerchantIdOrderByCreatedAtDesc(UUID merchantId);
+public interface PaymentRepository extends JpaRepository<Payment, String>, PaymentRepositoryCustom {
+    // Keyset pages, newest first; the row comparison is served by idx_payments_merchant_created
+    @Query(value = "SELECT * FROM payments WHERE merchant_id = :merchantId " +
+            "ORDER BY created_at DESC, id DESC LIMIT :limit", nativeQuery = true)
+    List<Payment> findFirstPage(UUID merchantId, int limit);
+    
+    @Query(value = "SELECT * FROM payments WHERE merchant_id = :merchantId AND (created_at, id) < (:createdAt, :id) " +
+            "ORDER BY created_at DESC, id DESC LIMIT :limit", nativeQuery = true)
+    List<Payment> findPageAfter(UUID merchantId, LocalDateTime createdAt, String id, int limit);
+    
     Optional<Payment> findByIdAndMerchantId(String id, UUID merchantId);
     List<Payment> findByOrderId(String orderId);
+    
+    // Atomically claims part of the refundable balance; returns 0 if the payment cannot cover the amount
+    @Modifying
+    @Query("UPDATE Payment p SET p.refundedAmount = p.refundedAmount + :amount " +
+            "WHERE p.id = :paymentId AND p.merchantId = :merchantId AND p.status = 'success' " +
+            "AND p.amount - p.refundedAmount >= :amount")
+    int reserveRefundAmount(String paymentId, UUID merchantId, int amount);
 }
@@ -0,0 +1,10 @@
+package com.gateway.repository;
+
+import com.gateway.model.Payment;
+
+import java.util.List;
+
+public interface PaymentRepositoryCustom {
+    // Only payments still pending are updated; returns those that were
+    List<Payment> batchUpdateStatus(List<Payment> payments);
+}
@@ -0,0 +1,36 @@
+package com.gateway.repository;
+
+import com.gateway.model.Payment;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class PaymentRepositoryCustomImpl implements PaymentRepositoryCustom {
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    // Writes the outcome of many processed payments as one JDBC batch instead of a merge per entity
+    @Override
+    public List<Payment> batchUpdateStatus(List<Payment> payments) {
+        LocalDateTime now = LocalDateTime.now();
+        // The status guard stops a re-delivered job from overwriting an outcome that is already committed
+        int[][] counts = jdbcTemplate.batchUpdate(
+                "UPDATE payments SET status = ?, error_code = ?, error_description = ?, updated_at = ? "
+                        + "WHERE id = ? AND status = 'pending'",
+                payments,
+                payments.size(),
+                (ps, payment) -> {
+                    ps.setString(1, payment.getStatus());
+                    ps.setString(2, payment.getErrorCode());
+                    ps.setString(3, payment.getErrorDescription());
+                    ps.setTimestamp(4, Timestamp.valueOf(now));
+                    ps.setString(5, payment.getId());
+                    payment.setUpdatedAt(now);
+                });
+        return BatchUpdates.updated(payments, counts);
+    }
+}
@@ -2,8 +2,6 @@ package com.gateway.repository;
 
 import com.gateway.model.Refund;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -11,10 +9,7 @@ import java.util.Optional;
 import java.util.UUID;
 
 @Repository
-public interface RefundRepository extends JpaRepository<Refund, String> {
+public interface RefundRepository extends JpaRepository<Refund, String>, RefundRepositoryCustom {
     List<Refund> findByPaymentId(String paymentId);
     Optional<Refund> findByIdAndMerchantId(String id, UUID merchantId);
-    
-    @Query("SELECT COALESCE(SUM(r.amount), 0) FROM Refund r WHERE r.paymentId = :paymentId")
-    Integer getTotalRefundedAmount(@Param("paymentId") String paymentId);
 }
@@ -0,0 +1,10 @@
+package com.gateway.repository;
+
+import com.gateway.model.Refund;
+
+import java.util.List;
+
+public interface RefundRepositoryCustom {
+    // Only refunds still pending are updated; returns those that were
+    List<Refund> batchUpdateStatus(List<Refund> refunds);
+}
@@ -0,0 +1,28 @@
+package com.gateway.repository;
+
+import com.gateway.model.Refund;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class RefundRepositoryCustomImpl implements RefundRepositoryCustom {
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    @Override
+    public List<Refund> batchUpdateStatus(List<Refund> refunds) {
+        int[][] counts = jdbcTemplate.batchUpdate(
+                "UPDATE refunds SET status = ?, processed_at = ? WHERE id = ? AND status = 'pending'",
+                refunds,
+                refunds.size(),
+                (ps, refund) -> {
+                    ps.setString(1, refund.getStatus());
+                    ps.setTimestamp(2, refund.getProcessedAt() != null ? Timestamp.valueOf(refund.getProcessedAt()) : null);
+                    ps.setString(3, refund.getId());
+                });
+        return BatchUpdates.updated(refunds, counts);
+    }
+}
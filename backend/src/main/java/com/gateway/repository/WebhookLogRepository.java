@@ -12,7 +12,7 @@ import java.util.Optional;
 import java.util.UUID;
 
 @Repository
-public interface WebhookLogRepository extends JpaRepository<WebhookLog, UUID> {
+public interface WebhookLogRepository extends JpaRepository<WebhookLog, UUID>, WebhookLogRepositoryCustom {
     Page<WebhookLog> findByMerchantIdOrderByCreatedAtDesc(UUID merchantId, Pageable pageable);
     Optional<WebhookLog> findByIdAndMerchantId(UUID id, UUID merchantId);
     List<WebhookLog> findByStatusAndNextRetryAtBefore(String status, LocalDateTime dateTime);
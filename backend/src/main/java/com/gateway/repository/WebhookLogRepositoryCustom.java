@@ -0,0 +1,9 @@
+package com.gateway.repository;
+
+import com.gateway.model.WebhookLog;
+
+import java.util.List;
+
+public interface WebhookLogRepositoryCustom {
+    void batchUpdateDelivery(List<WebhookLog> webhookLogs);
+}
@@ -0,0 +1,38 @@
+package com.gateway.repository;
+
+import com.gateway.model.WebhookLog;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class WebhookLogRepositoryCustomImpl implements WebhookLogRepositoryCustom {
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    @Override
+    public void batchUpdateDelivery(List<WebhookLog> webhookLogs) {
+        jdbcTemplate.batchUpdate(
+                "UPDATE webhook_logs SET status = ?, attempts = ?, last_attempt_at = ?, next_retry_at = ?, " +
+                        "response_code = ?, response_body = ? WHERE id = ?",
+                webhookLogs,
+                webhookLogs.size(),
+                (ps, webhookLog) -> {
+                    ps.setString(1, webhookLog.getStatus());
+                    ps.setInt(2, webhookLog.getAttempts());
+                    ps.setTimestamp(3, toTimestamp(webhookLog.getLastAttemptAt()));
+                    ps.setTimestamp(4, toTimestamp(webhookLog.getNextRetryAt()));
+                    ps.setObject(5, webhookLog.getResponseCode(), Types.INTEGER);
+                    ps.setString(6, webhookLog.getResponseBody());
+                    ps.setObject(7, webhookLog.getId());
+                });
+    }
+    
+    private static Timestamp toTimestamp(LocalDateTime dateTime) {
+        return dateTime != null ? Timestamp.valueOf(dateTime) : null;
+    }
+}
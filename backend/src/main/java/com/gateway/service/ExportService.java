@@ -0,0 +1,274 @@
+package com.gateway.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gateway.config.AppConfig;
+import com.gateway.dto.OrderResponse;
+import com.gateway.dto.PaymentResponse;
+import com.gateway.dto.RefundResponse;
+import com.gateway.model.Order;
+import com.gateway.model.Payment;
+import com.gateway.model.Refund;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Streams a merchant's full history as NDJSON or CSV. Rows are read through a server-side cursor
+ * (fetch size inside a read-only transaction) and written as they arrive, so memory use does not
+ * depend on the number of rows. Exports run on a small pool of their own and are cut off after a maximum
+ * duration, so they cannot tie up request threads or hold a transaction open indefinitely.
+ */
+@Service
+@Slf4j
+public class ExportService {
+    
+    public enum Format { NDJSON, CSV }
+    
+    // CSV values are read straight from the response objects; a null is written as an empty field
+    private record Column<R>(String name, Function<R, Object> value) {
+    }
+    
+    private static final List<Column<PaymentResponse>> PAYMENT_COLUMNS = List.of(
+            new Column<>("id", PaymentResponse::getId),
+            new Column<>("order_id", PaymentResponse::getOrderId),
+            new Column<>("amount", PaymentResponse::getAmount),
+            new Column<>("currency", PaymentResponse::getCurrency),
+            new Column<>("method", PaymentResponse::getMethod),
+            new Column<>("vpa", PaymentResponse::getVpa),
+            new Column<>("card_number", PaymentResponse::getCardNumber),
+            new Column<>("status", PaymentResponse::getStatus),
+            new Column<>("captured", PaymentResponse::getCaptured),
+            new Column<>("error_code", PaymentResponse::getErrorCode),
+            new Column<>("error_description", PaymentResponse::getErrorDescription),
+            new Column<>("created_at", PaymentResponse::getCreatedAt),
+            new Column<>("updated_at", PaymentResponse::getUpdatedAt));
+    private static final List<Column<RefundResponse>> REFUND_COLUMNS = List.of(
+            new Column<>("id", RefundResponse::getId),
+            new Column<>("payment_id", RefundResponse::getPaymentId),
+            new Column<>("amount", RefundResponse::getAmount),
+            new Column<>("reason", RefundResponse::getReason),
+            new Column<>("status", RefundResponse::getStatus),
+            new Column<>("created_at", RefundResponse::getCreatedAt),
+            new Column<>("processed_at", RefundResponse::getProcessedAt));
+    private static final List<Column<OrderResponse>> ORDER_COLUMNS = List.of(
+            new Column<>("id", OrderResponse::getId),
+            new Column<>("merchant_id", OrderResponse::getMerchantId),
+            new Column<>("amount", OrderResponse::getAmount),
+            new Column<>("currency", OrderResponse::getCurrency),
+            new Column<>("receipt", OrderResponse::getReceipt),
+            new Column<>("status", OrderResponse::getStatus),
+            new Column<>("created_at", OrderResponse::getCreatedAt));
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ExecutorService executor;
+    private final long maxDurationMs;
+    private final PaymentService paymentService;
+    private final RefundService refundService;
+    private final OrderService orderService;
+    private final ObjectMapper objectMapper;
+    
+    public ExportService(DataSource dataSource, PlatformTransactionManager transactionManager,
+                         PaymentService paymentService, RefundService refundService, OrderService orderService,
+                         ObjectMapper objectMapper, AppConfig appConfig) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(appConfig.getExportFetchSize());
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.maxDurationMs = appConfig.getExportMaxDurationMs();
+        // Also becomes the query timeout of the export statement
+        this.readOnlyTransaction.setTimeout((int) Math.max(1, (maxDurationMs + 999) / 1000));
+        // No queue: an export either starts right away on a free thread or is rejected
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(appConfig.getExportMaxConcurrent(), appConfig.getExportMaxConcurrent(),
+                0, TimeUnit.MILLISECONDS, new SynchronousQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "export-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.paymentService = paymentService;
+        this.refundService = refundService;
+        this.orderService = orderService;
+        this.objectMapper = objectMapper;
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    // Runs an export on the export pool; throws RejectedExecutionException when every slot is taken
+    public void submit(Runnable export) throws RejectedExecutionException {
+        executor.execute(export);
+    }
+    
+    public long getMaxDurationMs() {
+        return maxDurationMs;
+    }
+    
+    public static Format parseFormat(String format) {
+        try {
+            return Format.valueOf(format.toUpperCase());
+        } catch (Exception e) {
+            throw new RuntimeException("Unsupported export format: " + format);
+        }
+    }
+    
+    public void exportPayments(UUID merchantId, Format format, OutputStream out) throws IOException {
+        export("SELECT id, order_id, amount, currency, method, vpa, card_number, status, captured, error_code, " +
+                        "error_description, created_at, updated_at FROM payments WHERE merchant_id = ? ORDER BY created_at, id",
+                merchantId, this::mapPayment, paymentService::toPaymentResponse, PAYMENT_COLUMNS, format, out);
+    }
+    
+    public void exportRefunds(UUID merchantId, Format format, OutputStream out) throws IOException {
+        export("SELECT id, payment_id, amount, reason, status, created_at, processed_at " +
+                        "FROM refunds WHERE merchant_id = ? ORDER BY created_at, id",
+                merchantId, this::mapRefund, refundService::toRefundResponse, REFUND_COLUMNS, format, out);
+    }
+    
+    public void exportOrders(UUID merchantId, Format format, OutputStream out) throws IOException {
+        export("SELECT id, merchant_id, amount, currency, receipt, status, created_at " +
+                        "FROM orders WHERE merchant_id = ? ORDER BY created_at, id",
+                merchantId, this::mapOrder, orderService::toOrderResponse, ORDER_COLUMNS, format, out);
+    }
+    
+    // Failures are rethrown after the transaction has been rolled back, so the caller can abort the response
+    private <E, R> void export(String sql, UUID merchantId, RowMapper<E> rowMapper, Function<E, R> toResponse,
+                               List<Column<R>> columns, Format format, OutputStream out) throws IOException {
+        long deadline = System.currentTimeMillis() + maxDurationMs;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        try {
+            if (format == Format.CSV) {
+                writeCsvHeader(writer, columns);
+            }
+            writer.flush();
+            
+            // Postgres only honours the fetch size with auto-commit off, hence the transaction
+            readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(sql, (RowCallbackHandler) rs -> {
+                if (System.currentTimeMillis() > deadline) {
+                    throw new RuntimeException("Export exceeded " + maxDurationMs + " ms");
+                }
+                try {
+                    R response = toResponse.apply(rowMapper.mapRow(rs, 0));
+                    if (format == Format.CSV) {
+                        writeCsvRow(writer, columns, response);
+                    } else {
+                        writer.write(objectMapper.writeValueAsString(response));
+                        writer.write('\n');
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, merchantId));
+            writer.flush();
+        } catch (IOException | RuntimeException e) {
+            // Usually the client went away or the export ran too long; the cursor is closed by now
+            log.warn("Export for merchant {} aborted: {}", merchantId, e.getMessage());
+            if (e instanceof UncheckedIOException unchecked) {
+                throw unchecked.getCause();
+            }
+            throw e;
+        }
+    }
+    
+    private <R> void writeCsvHeader(Writer writer, List<Column<R>> columns) throws IOException {
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(columns.get(i).name());
+        }
+        writer.write("\r\n");
+    }
+    
+    private <R> void writeCsvRow(Writer writer, List<Column<R>> columns, R response) throws IOException {
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            Object field = columns.get(i).value().apply(response);
+            String value = field != null ? field.toString() : "";
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(value.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(value);
+            }
+        }
+        writer.write("\r\n");
+    }
+    
+    private Payment mapPayment(ResultSet rs, int rowNum) throws SQLException {
+        Payment payment = new Payment();
+        payment.setId(rs.getString("id"));
+        payment.setOrderId(rs.getString("order_id"));
+        payment.setAmount(rs.getInt("amount"));
+        payment.setCurrency(rs.getString("currency"));
+        payment.setMethod(rs.getString("method"));
+        payment.setVpa(rs.getString("vpa"));
+        payment.setCardNumber(rs.getString("card_number"));
+        payment.setStatus(rs.getString("status"));
+        payment.setCaptured(rs.getBoolean("captured"));
+        payment.setErrorCode(rs.getString("error_code"));
+        payment.setErrorDescription(rs.getString("error_description"));
+        payment.setCreatedAt(toLocalDateTime(rs.getTimestamp("created_at")));
+        payment.setUpdatedAt(toLocalDateTime(rs.getTimestamp("updated_at")));
+        return payment;
+    }
+    
+    private Refund mapRefund(ResultSet rs, int rowNum) throws SQLException {
+        Refund refund = new Refund();
+        refund.setId(rs.getString("id"));
+        refund.setPaymentId(rs.getString("payment_id"));
+        refund.setAmount(rs.getInt("amount"));
+        refund.setReason(rs.getString("reason"));
+        refund.setStatus(rs.getString("status"));
+        refund.setCreatedAt(toLocalDateTime(rs.getTimestamp("created_at")));
+        refund.setProcessedAt(toLocalDateTime(rs.getTimestamp("processed_at")));
+        return refund;
+    }
+    
+    private Order mapOrder(ResultSet rs, int rowNum) throws SQLException {
+        Order order = new Order();
+        order.setId(rs.getString("id"));
+        order.setMerchantId(rs.getObject("merchant_id", UUID.class));
+        order.setAmount(rs.getInt("amount"));
+        order.setCurrency(rs.getString("currency"));
+        order.setReceipt(rs.getString("receipt"));
+        order.setStatus(rs.getString("status"));
+        order.setCreatedAt(toLocalDateTime(rs.getTimestamp("created_at")));
+        return order;
+    }
+    
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
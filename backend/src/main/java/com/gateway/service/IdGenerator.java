@@ -0,0 +1,75 @@
+package com.gateway.service;
+
+import org.springframework.stereotype.Component;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+/**
+ * Prefixed resource IDs of 16 characters: 2 base36 characters of the creation minute, followed by 14
+ * random base62 characters (about 83 bits). IDs created in the same minute share a key range, so inserts
+ * go to a small, hot part of the primary key index instead of random pages all over it. The minute
+ * prefix wraps every 36^2 minutes (about 21.6 hours), because a full timestamp would not leave room for
+ * an unguessable random part within the 16 characters the API promises.
+ */
+@Component
+public class IdGenerator {
+    
+    // Digits and lower case only, so the time part sorts the same under C and linguistic collations
+    private static final char[] TIME_ALPHABET = "0123456789abcdefghijklmnopqrstuvwxyz".toCharArray();
+    private static final char[] RANDOM_ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789".toCharArray();
+    private static final int TIME_LENGTH = 2;
+    private static final int RANDOM_LENGTH = 14;
+    private static final long BUCKET_MS = 60000;
+    
+    // IDs are handed to the public checkout page, so they stay unguessable. Generators are seeded once and
+    // shared by thread id rather than kept per thread, since virtual threads would seed a new one for nearly every ID.
+    private static final SecureRandom[] RANDOMS = newRandoms();
+    
+    public String generate(String prefix) {
+        char[] id = new char[TIME_LENGTH + RANDOM_LENGTH];
+        
+        // Only the low TIME_LENGTH digits of the minute are kept
+        long bucket = System.currentTimeMillis() / BUCKET_MS;
+        for (int i = TIME_LENGTH - 1; i >= 0; i--) {
+            id[i] = TIME_ALPHABET[(int) (bucket % TIME_ALPHABET.length)];
+            bucket /= TIME_ALPHABET.length;
+        }
+        
+        // Six random bits per character; values 62 and 63 are drawn again so every character stays uniform
+        SecureRandom random = RANDOMS[(int) (Thread.currentThread().getId() & (RANDOMS.length - 1))];
+        byte[] bytes = new byte[RANDOM_LENGTH + 2];
+        int next = bytes.length;
+        for (int i = TIME_LENGTH; i < id.length; ) {
+            if (next == bytes.length) {
+                random.nextBytes(bytes);
+                next = 0;
+            }
+            int value = bytes[next++] & 63;
+            if (value < RANDOM_ALPHABET.length) {
+                id[i++] = RANDOM_ALPHABET[value];
+            }
+        }
+        
+        return prefix.concat(new String(id));
+    }
+    
+    // A power of two of at least twice the processor count, so few threads share a generator at a time
+    private static SecureRandom[] newRandoms() {
+        int count = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 4 - 1);
+        SecureRandom[] randoms = new SecureRandom[count];
+        for (int i = 0; i < count; i++) {
+            randoms[i] = newRandom();
+        }
+        return randoms;
+    }
+    
+    private static SecureRandom newRandom() {
+        try {
+            return SecureRandom.getInstance("DRBG");
+        } catch (NoSuchAlgorithmException e) {
+            return new SecureRandom();
+        }
+    }
+}
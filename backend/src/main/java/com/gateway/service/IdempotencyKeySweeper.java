@@ -0,0 +1,107 @@
+package com.gateway.service;
+
+import com.gateway.config.AppConfig;
+import com.gateway.repository.IdempotencyKeyRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes expired idempotency keys in bounded batches. Runs on API nodes only, on its own thread, and a
+ * Redis lock lets one node at a time sweep. A run stops after a batch and time limit; whatever is left
+ * is picked up by the next run.
+ */
+@Service
+@Profile("!worker")
+@RequiredArgsConstructor
+@Slf4j
+public class IdempotencyKeySweeper {
+    
+    private static final String LOCK_NAME = "idempotency-keys:sweeper";
+    
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final RedissonClient redissonClient;
+    private final MeterRegistry meterRegistry;
+    private final AppConfig appConfig;
+    
+    // Long sweeps never hold up the shared @Scheduled threads
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "idempotency-key-sweeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Counter deleted;
+    private Counter capped;
+    
+    @PostConstruct
+    public void start() {
+        deleted = Counter.builder("idempotency.keys.deleted").register(meterRegistry);
+        // Runs that stopped at a limit with expired keys possibly left over; steady growth means the sweep is falling behind
+        capped = Counter.builder("idempotency.keys.sweep.capped").register(meterRegistry);
+        scheduler.scheduleWithFixedDelay(this::sweepExpiredKeys, appConfig.getIdempotencySweepIntervalMs(),
+                appConfig.getIdempotencySweepIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+    
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+    
+    public void sweepExpiredKeys() {
+        RLock lock = redissonClient.getLock(LOCK_NAME);
+        long maxDurationMs = appConfig.getIdempotencySweepMaxDurationMs();
+        try {
+            // Lease outlives a capped run but frees the lock if this node dies mid-sweep
+            if (!lock.tryLock(0, maxDurationMs * 3, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (Exception e) {
+            log.error("Failed to acquire idempotency sweeper lock", e);
+            return;
+        }
+        
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            long deadline = System.currentTimeMillis() + maxDurationMs;
+            int batchSize = appConfig.getIdempotencySweepBatchSize();
+            long total = 0;
+            boolean drained = false;
+            for (int i = 0; i < appConfig.getIdempotencySweepMaxBatches() && System.currentTimeMillis() < deadline; i++) {
+                int removed = idempotencyKeyRepository.deleteExpiredKeysBatch(now, batchSize);
+                total += removed;
+                deleted.increment(removed);
+                if (removed < batchSize) {
+                    drained = true;
+                    break;
+                }
+            }
+            if (!drained) {
+                capped.increment();
+            }
+            if (total > 0) {
+                log.info("Deleted {} expired idempotency keys{}", total, drained ? "" : ", more remain for the next run");
+            }
+        } catch (Exception e) {
+            log.error("Failed to sweep expired idempotency keys", e);
+        } finally {
+            if (lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        }
+    }
+}
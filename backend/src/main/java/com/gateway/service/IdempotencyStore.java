@@ -0,0 +1,86 @@
+package com.gateway.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gateway.config.AppConfig;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBucket;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.ByteArrayCodec;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis fast path for idempotency keys. A key is claimed atomically with an in-flight marker; the
+ * owner replaces it with the serialized response, which later duplicates get back without touching
+ * Postgres. Postgres remains the durable record for when Redis has lost the entry or is unavailable.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IdempotencyStore {
+    
+    private static final byte[] IN_FLIGHT = "in-flight".getBytes(StandardCharsets.UTF_8);
+    private static final long POLL_INTERVAL_MS = 20;
+    
+    private final RedissonClient redissonClient;
+    private final ObjectMapper objectMapper;
+    private final AppConfig appConfig;
+    
+    // Returns null when the caller now owns the key, otherwise the stored response bytes.
+    // A duplicate arriving while the key is in flight waits briefly, then gets a conflict.
+    public byte[] claim(UUID merchantId, String key) {
+        RBucket<byte[]> bucket = bucket(merchantId, key);
+        long deadline = System.currentTimeMillis() + appConfig.getIdempotencyWaitMs();
+        try {
+            while (true) {
+                if (bucket.trySet(IN_FLIGHT, appConfig.getIdempotencyLockMs(), TimeUnit.MILLISECONDS)) {
+                    return null;
+                }
+                byte[] stored = bucket.get();
+                if (stored != null && !Arrays.equals(stored, IN_FLIGHT)) {
+                    return stored;
+                }
+                if (System.currentTimeMillis() >= deadline) {
+                    throw new IdempotencyConflictException("A request with this Idempotency-Key is already in progress");
+                }
+                Thread.sleep(POLL_INTERVAL_MS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyConflictException("Interrupted while waiting for Idempotency-Key");
+        } catch (IdempotencyConflictException e) {
+            throw e;
+        } catch (Exception e) {
+            // Redis unavailable: fall back to the Postgres record
+            log.warn("Idempotency claim failed for key {}, falling back to database", key, e);
+            return null;
+        }
+    }
+    
+    public void complete(UUID merchantId, String key, Object response) {
+        try {
+            bucket(merchantId, key).set(objectMapper.writeValueAsBytes(response),
+                    appConfig.getIdempotencyTtlMs(), TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            log.error("Failed to store idempotent response for key {}", key, e);
+        }
+    }
+    
+    // Give the key up after a failed request so the client can retry it
+    public void release(UUID merchantId, String key) {
+        try {
+            bucket(merchantId, key).compareAndSet(IN_FLIGHT, null);
+        } catch (Exception e) {
+            log.error("Failed to release idempotency key {}", key, e);
+        }
+    }
+    
+    private RBucket<byte[]> bucket(UUID merchantId, String key) {
+        return redissonClient.getBucket("idempotency:" + merchantId + ":" + key, ByteArrayCodec.INSTANCE);
+    }
+}
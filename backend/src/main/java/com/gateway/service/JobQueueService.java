@@ -1,15 +1,39 @@
 package com.gateway.service;
 
+import com.gateway.config.AppConfig;
 import com.gateway.jobs.DeliverWebhookJob;
 import com.gateway.jobs.ProcessPaymentJob;
 import com.gateway.jobs.ProcessRefundJob;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBlockingDeque;
+import org.redisson.api.RBlockingQueue;
+import org.redisson.api.RDeque;
+import org.redisson.api.RList;
+import org.redisson.api.RMap;
 import org.redisson.api.RQueue;
+import org.redisson.api.RScoredSortedSet;
+import org.redisson.api.RScript;
 import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 @RequiredArgsConstructor
@@ -17,32 +41,216 @@ import java.util.UUID;
 public class JobQueueService {
     
     private final RedissonClient redissonClient;
+    private final AppConfig appConfig;
     
-    private static final String PAYMENT_QUEUE = "payment-jobs";
-    private static final String WEBHOOK_QUEUE = "webhook-jobs";
-    private static final String REFUND_QUEUE = "refund-jobs";
+    public static final String PAYMENT_QUEUE = "payment-jobs";
+    public static final String WEBHOOK_QUEUE = "webhook-jobs";
+    public static final String REFUND_QUEUE = "refund-jobs";
+    
+    private static final List<String> QUEUES = List.of(PAYMENT_QUEUE, WEBHOOK_QUEUE, REFUND_QUEUE);
+    
+    // Atomically moves up to ARGV[2] jobs whose due time <= ARGV[1] from the delayed set to the queue head
+    private static final String PROMOTE_DUE_JOBS_SCRIPT =
+            "local due = redis.call('zrangebyscore', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, tonumber(ARGV[2])) " +
+            "for _, job in ipairs(due) do " +
+            "  redis.call('zrem', KEYS[1], job) " +
+            "  redis.call('lpush', KEYS[2], job) " +
+            "end " +
+            "return #due";
+    
+    // Moves up to ARGV[1] jobs from the queue tail (KEYS[1]) to the processing list (KEYS[2]) in one round trip
+    private static final String CLAIM_BATCH_SCRIPT =
+            "local jobs = {} " +
+            "for i = 1, tonumber(ARGV[1]) do " +
+            "  local job = redis.call('rpoplpush', KEYS[1], KEYS[2]) " +
+            "  if not job then break end " +
+            "  table.insert(jobs, job) " +
+            "end " +
+            "return jobs";
+    
+    // Unique per process, so a restarted node never adopts the in-flight jobs of its previous incarnation
+    private final String consumerId = resolveHostName() + ":" + UUID.randomUUID().toString().substring(0, 8);
+    private final Set<String> consumedQueues = ConcurrentHashMap.newKeySet();
+    
+    // Heartbeats and the reaper get their own threads: behind a slow task on the shared @Scheduled thread a
+    // heartbeat could miss the visibility timeout and have this node's in-flight jobs delivered twice
+    private final AtomicInteger livenessThreads = new AtomicInteger();
+    private final ScheduledExecutorService liveness = Executors.newScheduledThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "job-queue-liveness-" + livenessThreads.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    @PostConstruct
+    public void startLiveness() {
+        liveness.scheduleWithFixedDelay(this::sendHeartbeats, appConfig.getQueueHeartbeatIntervalMs(),
+                appConfig.getQueueHeartbeatIntervalMs(), TimeUnit.MILLISECONDS);
+        liveness.scheduleWithFixedDelay(this::requeueExpiredJobs, appConfig.getQueueReaperIntervalMs(),
+                appConfig.getQueueReaperIntervalMs(), TimeUnit.MILLISECONDS);
+    }
     
     public void enqueuePaymentJob(String paymentId) {
-        RQueue<ProcessPaymentJob> queue = redissonClient.getQueue(PAYMENT_QUEUE);
-        ProcessPaymentJob job = new ProcessPaymentJob(paymentId);
-        queue.add(job);
+        publish(PAYMENT_QUEUE, new ProcessPaymentJob(paymentId));
         log.info("Enqueued payment job for payment: {}", paymentId);
     }
     
     public void enqueueWebhookJob(UUID webhookLogId) {
-        RQueue<DeliverWebhookJob> queue = redissonClient.getQueue(WEBHOOK_QUEUE);
-        DeliverWebhookJob job = new DeliverWebhookJob(webhookLogId);
-        queue.add(job);
+        publish(WEBHOOK_QUEUE, new DeliverWebhookJob(webhookLogId));
         log.info("Enqueued webhook job for webhook log: {}", webhookLogId);
     }
     
     public void enqueueRefundJob(String refundId) {
-        RQueue<ProcessRefundJob> queue = redissonClient.getQueue(REFUND_QUEUE);
-        ProcessRefundJob job = new ProcessRefundJob(refundId);
-        queue.add(job);
+        publish(REFUND_QUEUE, new ProcessRefundJob(refundId));
         log.info("Enqueued refund job for refund: {}", refundId);
     }
     
+    // Retries and other deferred work live in a Redis sorted set scored by due time, so any number of
+    // scheduled jobs costs no threads on this node and survives restarts.
+    public void scheduleWebhookJob(UUID webhookLogId, long delayMs) {
+        schedule(WEBHOOK_QUEUE, new DeliverWebhookJob(webhookLogId), delayMs);
+        log.info("Scheduled webhook job for webhook log {} in {} ms", webhookLogId, delayMs);
+    }
+    
+    public void schedule(String queueName, Object job, long delayMs) {
+        if (delayMs <= 0) {
+            publish(queueName, job);
+            return;
+        }
+        afterCommit(() -> {
+            RScoredSortedSet<Object> delayed = redissonClient.getScoredSortedSet(delayedSetName(queueName));
+            delayed.add(System.currentTimeMillis() + delayMs, job);
+        });
+    }
+    
+    @Scheduled(fixedDelayString = "${app.queue.delayed-poll-interval-ms:1000}")
+    public void promoteDueJobs() {
+        int batchSize = appConfig.getDelayedPromoteBatchSize();
+        String now = String.valueOf(System.currentTimeMillis());
+        RScript script = redissonClient.getScript(StringCodec.INSTANCE);
+        for (String queueName : QUEUES) {
+            try {
+                long promoted;
+                do {
+                    promoted = script.eval(RScript.Mode.READ_WRITE, PROMOTE_DUE_JOBS_SCRIPT, RScript.ReturnType.INTEGER,
+                            List.<Object>of(delayedSetName(queueName), queueName), now, String.valueOf(batchSize));
+                    if (promoted > 0) {
+                        log.info("Promoted {} due jobs to {}", promoted, queueName);
+                    }
+                } while (promoted >= batchSize);
+            } catch (Exception e) {
+                log.error("Failed to promote due jobs for queue {}", queueName, e);
+            }
+        }
+    }
+    
+    // Take the next job. In reliable mode the job is atomically moved to this consumer's
+    // processing list and stays there until ack() is called.
+    public <T> T claim(String queueName, long timeout, TimeUnit unit) throws InterruptedException {
+        if (!appConfig.isReliableQueue()) {
+            RBlockingDeque<T> queue = redissonClient.getBlockingDeque(queueName);
+            return queue.pollLast(timeout, unit);
+        }
+        
+        if (consumedQueues.add(queueName)) {
+            heartbeat(queueName);
+        }
+        RBlockingQueue<T> queue = redissonClient.getBlockingQueue(queueName);
+        return queue.pollLastAndOfferFirstTo(processingListName(queueName, consumerId), timeout, unit);
+    }
+    
+    // Block for the first job, then take up to max - 1 more that are already waiting
+    public <T> List<T> claimBatch(String queueName, int max, long timeout, TimeUnit unit) throws InterruptedException {
+        T first = claim(queueName, timeout, unit);
+        if (first == null) {
+            return List.of();
+        }
+        List<T> jobs = new ArrayList<>(max);
+        jobs.add(first);
+        if (max <= 1) {
+            return jobs;
+        }
+        
+        if (!appConfig.isReliableQueue()) {
+            RDeque<T> queue = redissonClient.getDeque(queueName);
+            jobs.addAll(queue.pollLast(max - 1));
+            return jobs;
+        }
+        
+        RScript script = redissonClient.getScript();
+        List<T> more = script.eval(RScript.Mode.READ_WRITE, CLAIM_BATCH_SCRIPT, RScript.ReturnType.MULTI,
+                List.<Object>of(queueName, processingListName(queueName, consumerId)), max - 1);
+        jobs.addAll(more);
+        return jobs;
+    }
+    
+    public void ack(String queueName, Object job) {
+        if (!appConfig.isReliableQueue()) {
+            return;
+        }
+        RList<Object> processing = redissonClient.getList(processingListName(queueName, consumerId));
+        if (!processing.remove(job, 1)) {
+            log.warn("Acknowledged job {} was not in the processing list of {}", job, consumerId);
+        }
+    }
+    
+    // Give a claimed job back to the queue, e.g. when its results could not be persisted
+    public void requeue(String queueName, Object job) {
+        if (appConfig.isReliableQueue()) {
+            RList<Object> processing = redissonClient.getList(processingListName(queueName, consumerId));
+            processing.remove(job, 1);
+        }
+        RDeque<Object> queue = redissonClient.getDeque(queueName);
+        queue.addFirst(job);
+    }
+    
+    public void sendHeartbeats() {
+        for (String queueName : consumedQueues) {
+            try {
+                heartbeat(queueName);
+            } catch (Exception e) {
+                log.error("Failed to send heartbeat for queue {}", queueName, e);
+            }
+        }
+    }
+    
+    // Re-deliver jobs held by consumers that stopped heart-beating for longer than the visibility timeout
+    public void requeueExpiredJobs() {
+        if (!appConfig.isReliableQueue()) {
+            return;
+        }
+        long deadline = System.currentTimeMillis() - appConfig.getQueueVisibilityTimeoutMs();
+        for (String queueName : QUEUES) {
+            try {
+                RMap<String, Long> consumers = redissonClient.getMap(consumersName(queueName));
+                for (Map.Entry<String, Long> consumer : consumers.readAllEntrySet()) {
+                    if (!consumer.getKey().equals(consumerId) && consumer.getValue() < deadline) {
+                        int requeued = requeueProcessingList(queueName, consumer.getKey());
+                        consumers.fastRemove(consumer.getKey());
+                        log.warn("Consumer {} expired, re-delivered {} jobs to {}", consumer.getKey(), requeued, queueName);
+                    }
+                }
+            } catch (Exception e) {
+                log.error("Failed to re-deliver expired jobs for queue {}", queueName, e);
+            }
+        }
+    }
+    
+    @PreDestroy
+    public void deregister() {
+        liveness.shutdownNow();
+        // Workers have drained by now; anything still in flight is left for the reaper
+        for (String queueName : consumedQueues) {
+            try {
+                RList<Object> processing = redissonClient.getList(processingListName(queueName, consumerId));
+                if (processing.isEmpty()) {
+                    redissonClient.getMap(consumersName(queueName)).fastRemove(consumerId);
+                }
+            } catch (Exception e) {
+                log.warn("Failed to deregister consumer {} from {}", consumerId, queueName, e);
+            }
+        }
+    }
+    
     public int getPendingPaymentJobs() {
         RQueue<ProcessPaymentJob> queue = redissonClient.getQueue(PAYMENT_QUEUE);
         return queue.size();
@@ -61,4 +269,90 @@ public class JobQueueService {
     public int getTotalPendingJobs() {
         return getPendingPaymentJobs() + getPendingWebhookJobs() + getPendingRefundJobs();
     }
+    
+    public int getScheduledJobs() {
+        int scheduled = 0;
+        for (String queueName : QUEUES) {
+            scheduled += redissonClient.getScoredSortedSet(delayedSetName(queueName)).size();
+        }
+        return scheduled;
+    }
+    
+    public int getProcessingJobs() {
+        if (!appConfig.isReliableQueue()) {
+            return 0;
+        }
+        int processing = 0;
+        for (String queueName : QUEUES) {
+            RMap<String, Long> consumers = redissonClient.getMap(consumersName(queueName));
+            for (String consumer : consumers.readAllKeySet()) {
+                processing += redissonClient.getList(processingListName(queueName, consumer)).size();
+            }
+        }
+        return processing;
+    }
+    
+    // Producers push to the head and consumers take from the tail, which keeps FIFO order
+    // for both the plain BRPOP consumer and the reliable BRPOPLPUSH consumer.
+    private void publish(String queueName, Object job) {
+        afterCommit(() -> {
+            RDeque<Object> queue = redissonClient.getDeque(queueName);
+            queue.addFirst(job);
+        });
+    }
+    
+    // Jobs created inside a transaction are only published once it commits, so a worker can
+    // never pick up a job before the row it refers to is visible. Rolled-back work is never published.
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                // The data is already committed, so report the failure instead of failing the request
+                try {
+                    action.run();
+                } catch (Exception e) {
+                    log.error("Failed to publish job after commit", e);
+                }
+            }
+        });
+    }
+    
+    private void heartbeat(String queueName) {
+        RMap<String, Long> consumers = redissonClient.getMap(consumersName(queueName));
+        consumers.fastPut(consumerId, System.currentTimeMillis());
+    }
+    
+    private int requeueProcessingList(String queueName, String consumer) {
+        RQueue<Object> processing = redissonClient.getQueue(processingListName(queueName, consumer));
+        int requeued = 0;
+        // RPOPLPUSH moves one job at a time, so concurrent reapers never duplicate a job
+        while (processing.pollLastAndOfferFirstTo(queueName) != null) {
+            requeued++;
+        }
+        return requeued;
+    }
+    
+    private static String processingListName(String queueName, String consumer) {
+        return queueName + ":processing:" + consumer;
+    }
+    
+    private static String delayedSetName(String queueName) {
+        return queueName + ":delayed";
+    }
+    
+    private static String consumersName(String queueName) {
+        return queueName + ":consumers";
+    }
+    
+    private static String resolveHostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "unknown";
+        }
+    }
 }
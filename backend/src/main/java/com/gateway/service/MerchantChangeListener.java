@@ -0,0 +1,21 @@
+package com.gateway.service;
+
+import com.gateway.model.Merchant;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+// JPA entity listener: any update of a merchant row through JPA invalidates cached copies cluster-wide
+@Component
+@RequiredArgsConstructor
+public class MerchantChangeListener {
+    
+    private final MerchantChangeNotifier merchantChangeNotifier;
+    
+    @PostUpdate
+    @PostRemove
+    public void onChange(Merchant merchant) {
+        merchantChangeNotifier.publish(merchant.getId());
+    }
+}
@@ -0,0 +1,75 @@
+package com.gateway.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Broadcasts merchant changes (credentials, webhook settings) over Redis pub/sub so every node
+ * can drop its cached copy of the merchant.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MerchantChangeNotifier {
+    
+    private static final String TOPIC = "merchant-changes";
+    
+    private final RedissonClient redissonClient;
+    
+    private final List<Consumer<UUID>> listeners = new CopyOnWriteArrayList<>();
+    
+    @PostConstruct
+    public void subscribe() {
+        topic().addListener(String.class, (channel, merchantId) -> {
+            UUID id = UUID.fromString(merchantId);
+            for (Consumer<UUID> listener : listeners) {
+                try {
+                    listener.accept(id);
+                } catch (Exception e) {
+                    log.error("Merchant change listener failed for {}", id, e);
+                }
+            }
+        });
+    }
+    
+    public void addListener(Consumer<UUID> listener) {
+        listeners.add(listener);
+    }
+    
+    // Published after commit so no node re-caches the old row; the publishing node is notified too
+    public void publish(UUID merchantId) {
+        Runnable action = () -> {
+            try {
+                topic().publish(merchantId.toString());
+            } catch (Exception e) {
+                log.error("Failed to publish change for merchant {}", merchantId, e);
+            }
+        };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+    
+    private RTopic topic() {
+        return redissonClient.getTopic(TOPIC, StringCodec.INSTANCE);
+    }
+}
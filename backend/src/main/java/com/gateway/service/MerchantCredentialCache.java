@@ -0,0 +1,124 @@
+package com.gateway.service;
+
+import com.gateway.config.AppConfig;
+import com.gateway.model.Merchant;
+import com.gateway.repository.MerchantRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, TTL-based cache of merchants keyed by API key, used to authenticate API requests without
+ * a database round trip. Entries are dropped on merchant change notifications; the TTL bounds staleness
+ * for changes made outside the application. Unknown keys are never cached. Callers get their own copy
+ * of the merchant, so a request that modifies it cannot change what other requests see.
+ */
+@Service
+@Profile("!worker")
+@RequiredArgsConstructor
+@Slf4j
+public class MerchantCredentialCache {
+    
+    private final MerchantRepository merchantRepository;
+    private final MerchantChangeNotifier merchantChangeNotifier;
+    private final MeterRegistry meterRegistry;
+    private final AppConfig appConfig;
+    
+    private final Map<String, CachedMerchant> merchantsByApiKey = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    
+    // The cached merchant is never handed out, only copies of it
+    private record CachedMerchant(Merchant merchant, long expiresAt) {
+    }
+    
+    @PostConstruct
+    public void init() {
+        merchantChangeNotifier.addListener(this::evict);
+        FunctionCounter.builder("merchant.credential.cache.requests", hits, LongAdder::sum)
+                .tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("merchant.credential.cache.requests", misses, LongAdder::sum)
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("merchant.credential.cache.size", merchantsByApiKey, Map::size)
+                .register(meterRegistry);
+    }
+    
+    // Returns the merchant only if the secret matches
+    public Optional<Merchant> authenticate(String apiKey, String apiSecret) {
+        Merchant merchant = lookup(apiKey);
+        if (merchant == null || !secretMatches(merchant.getApiSecret(), apiSecret)) {
+            return Optional.empty();
+        }
+        return Optional.of(copy(merchant));
+    }
+    
+    public void evict(UUID merchantId) {
+        merchantsByApiKey.values().removeIf(cached -> cached.merchant().getId().equals(merchantId));
+    }
+    
+    private Merchant lookup(String apiKey) {
+        long now = System.currentTimeMillis();
+        CachedMerchant cached = merchantsByApiKey.get(apiKey);
+        if (cached != null && cached.expiresAt() > now) {
+            hits.increment();
+            return cached.merchant();
+        }
+        misses.increment();
+        
+        Optional<Merchant> merchant = merchantRepository.findByApiKey(apiKey);
+        if (merchant.isEmpty()) {
+            merchantsByApiKey.remove(apiKey);
+            return null;
+        }
+        makeRoom(now);
+        merchantsByApiKey.put(apiKey, new CachedMerchant(copy(merchant.get()), now + appConfig.getAuthCacheTtlMs()));
+        return merchant.get();
+    }
+    
+    private void makeRoom(long now) {
+        if (merchantsByApiKey.size() < appConfig.getAuthCacheMaxSize()) {
+            return;
+        }
+        merchantsByApiKey.values().removeIf(cached -> cached.expiresAt() <= now);
+        // Still full: drop arbitrary entries, they are re-read on next use
+        Iterator<String> keys = merchantsByApiKey.keySet().iterator();
+        while (merchantsByApiKey.size() >= appConfig.getAuthCacheMaxSize() && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+    
+    private static Merchant copy(Merchant merchant) {
+        Merchant copy = new Merchant();
+        copy.setId(merchant.getId());
+        copy.setName(merchant.getName());
+        copy.setEmail(merchant.getEmail());
+        copy.setApiKey(merchant.getApiKey());
+        copy.setApiSecret(merchant.getApiSecret());
+        copy.setWebhookUrl(merchant.getWebhookUrl());
+        copy.setWebhookSecret(merchant.getWebhookSecret());
+        copy.setWebhookBatching(merchant.getWebhookBatching());
+        copy.setCreatedAt(merchant.getCreatedAt());
+        return copy;
+    }
+    
+    private static boolean secretMatches(String expected, String provided) {
+        return MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8), provided.getBytes(StandardCharsets.UTF_8));
+    }
+}
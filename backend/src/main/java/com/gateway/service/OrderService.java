@@ -1,6 +1,10 @@
 package com.gateway.service;
 
+import com.gateway.config.AppConfig;
+import com.gateway.dto.BatchOrderResult;
 import com.gateway.dto.CreateOrderRequest;
+import com.gateway.dto.CursorPage;
+import com.gateway.dto.ErrorResponse;
 import com.gateway.dto.OrderResponse;
 import com.gateway.model.Merchant;
 import com.gateway.model.Order;
@@ -10,8 +14,9 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.security.SecureRandom;
+import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -21,34 +26,94 @@ import java.util.stream.Collectors;
 public class OrderService {
     
     private final OrderRepository orderRepository;
-    
-    private static final String ALPHANUMERIC = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
-    private static final SecureRandom random = new SecureRandom();
+    private final AppConfig appConfig;
+    private final IdGenerator idGenerator;
     
     @Transactional
     public OrderResponse createOrder(Merchant merchant, CreateOrderRequest request) {
+        return toOrderResponse(createOrderEntity(merchant, request));
+    }
+    
+    // Joins the caller's transaction
+    Order createOrderEntity(Merchant merchant, CreateOrderRequest request) {
+        validate(request);
+        
+        Order order = orderRepository.save(newOrder(merchant, request));
+        
+        log.info("Created order {} for merchant {}", order.getId(), merchant.getId());
+        
+        return order;
+    }
+    
+    // Invalid items are reported individually; valid ones are inserted together in one batched transaction
+    @Transactional
+    public List<BatchOrderResult> createOrders(Merchant merchant, List<CreateOrderRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new RuntimeException("No orders provided");
+        }
+        if (requests.size() > appConfig.getOrderBatchMaxSize()) {
+            throw new RuntimeException("At most " + appConfig.getOrderBatchMaxSize() + " orders per batch");
+        }
+        
+        List<BatchOrderResult> results = new ArrayList<>(requests.size());
+        List<Order> orders = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            CreateOrderRequest request = requests.get(i);
+            try {
+                validate(request);
+            } catch (RuntimeException e) {
+                results.add(new BatchOrderResult(i, null, new ErrorResponse.ErrorDetail("BAD_REQUEST_ERROR", e.getMessage())));
+                continue;
+            }
+            Order order = newOrder(merchant, request);
+            orders.add(order);
+            results.add(new BatchOrderResult(i, null, null));
+        }
+        
+        orderRepository.saveAll(orders);
+        
+        int next = 0;
+        for (BatchOrderResult result : results) {
+            if (result.getError() == null) {
+                result.setOrder(toOrderResponse(orders.get(next++)));
+            }
+        }
+        
+        log.info("Created {} of {} batched orders for merchant {}", orders.size(), requests.size(), merchant.getId());
+        
+        return results;
+    }
+    
+    private void validate(CreateOrderRequest request) {
+        if (request == null) {
+            throw new RuntimeException("Invalid order");
+        }
+        
         // Validate amount
         if (request.getAmount() == null || request.getAmount() <= 0) {
             throw new RuntimeException("Invalid amount");
         }
         
-        // Generate order ID
-        String orderId = generateId("order_");
+        if (request.getCurrency() != null && request.getCurrency().length() != 3) {
+            throw new RuntimeException("Invalid currency");
+        }
         
-        // Create order
+        if (request.getReceipt() != null && request.getReceipt().length() > 255) {
+            throw new RuntimeException("Receipt too long");
+        }
+    }
+    
+    private Order newOrder(Merchant merchant, CreateOrderRequest request) {
         Order order = new Order();
-        order.setId(orderId);
+        order.setId(idGenerator.generate("order_"));
         order.setMerchantId(merchant.getId());
         order.setAmount(request.getAmount());
         order.setCurrency(request.getCurrency() != null ? request.getCurrency() : "INR");
         order.setReceipt(request.getReceipt());
         order.setStatus("created");
-        
-        order = orderRepository.saveAndFlush(order);
-        
-        log.info("Created order {} for merchant {}", orderId, merchant.getId());
-        
-        return toOrderResponse(order);
+        // Set here rather than at flush so the response can be built before the insert is sent
+        order.setCreatedAt(LocalDateTime.now());
+        return order;
     }
     
     public OrderResponse getOrder(Merchant merchant, String orderId) {
@@ -57,14 +122,27 @@ public class OrderService {
         return toOrderResponse(order);
     }
     
-    public List<OrderResponse> getOrders(Merchant merchant) {
-        return orderRepository.findByMerchantIdOrderByCreatedAtDesc(merchant.getId())
-                .stream()
-                .map(this::toOrderResponse)
-                .collect(Collectors.toList());
+    public CursorPage<OrderResponse> getOrders(Merchant merchant, Integer limit, String after) {
+        int pageSize = PageCursor.clampLimit(limit);
+        // Fetch one extra row to know whether another page follows
+        List<Order> orders;
+        if (after == null || after.isEmpty()) {
+            orders = orderRepository.findFirstPage(merchant.getId(), pageSize + 1);
+        } else {
+            PageCursor cursor = PageCursor.decode(after);
+            orders = orderRepository.findPageAfter(merchant.getId(), cursor.createdAt(), cursor.id(), pageSize + 1);
+        }
+        
+        String nextCursor = null;
+        if (orders.size() > pageSize) {
+            orders = orders.subList(0, pageSize);
+            Order last = orders.get(pageSize - 1);
+            nextCursor = new PageCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return new CursorPage<>(orders.stream().map(this::toOrderResponse).collect(Collectors.toList()), nextCursor);
     }
     
-    private OrderResponse toOrderResponse(Order order) {
+    OrderResponse toOrderResponse(Order order) {
         return OrderResponse.builder()
                 .id(order.getId())
                 .merchantId(order.getMerchantId().toString())
@@ -75,12 +153,4 @@ public class OrderService {
                 .createdAt(order.getCreatedAt().atZone(ZoneOffset.UTC).toString())
                 .build();
     }
-    
-    private String generateId(String prefix) {
-        StringBuilder sb = new StringBuilder(prefix);
-        for (int i = 0; i < 16; i++) {
-            sb.append(ALPHANUMERIC.charAt(random.nextInt(ALPHANUMERIC.length())));
-        }
-        return sb.toString();
-    }
 }
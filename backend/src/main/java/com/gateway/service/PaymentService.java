@@ -1,7 +1,7 @@
 package com.gateway.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gateway.config.AppConfig;
 import com.gateway.dto.*;
 import com.gateway.model.IdempotencyKey;
 import com.gateway.model.Merchant;
@@ -15,13 +15,16 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.security.SecureRandom;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -31,43 +34,112 @@ public class PaymentService {
     
     private final PaymentRepository paymentRepository;
     private final OrderRepository orderRepository;
+    private final OrderService orderService;
     private final MerchantRepository merchantRepository;
     private final IdempotencyKeyRepository idempotencyKeyRepository;
     private final JobQueueService jobQueueService;
+    private final IdGenerator idGenerator;
     private final WebhookService webhookService;
+    private final PaymentStatusNotifier paymentStatusNotifier;
+    private final IdempotencyStore idempotencyStore;
+    private final TransactionTemplate transactionTemplate;
     private final ObjectMapper objectMapper;
+    private final AppConfig appConfig;
     
-    private static final String ALPHANUMERIC = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
-    private static final SecureRandom random = new SecureRandom();
-    
-    @Transactional
     public PaymentResponse createPayment(Merchant merchant, CreatePaymentRequest request, String idempotencyKey) {
-        // Check idempotency key
-        if (idempotencyKey != null && !idempotencyKey.isEmpty()) {
-            Optional<IdempotencyKey> existingKey = idempotencyKeyRepository
-                    .findByKeyAndMerchantId(idempotencyKey, merchant.getId());
-            
-            if (existingKey.isPresent()) {
-                IdempotencyKey key = existingKey.get();
-                if (key.getExpiresAt().isAfter(LocalDateTime.now())) {
-                    // Return cached response
-                    try {
-                        return objectMapper.treeToValue(key.getResponse(), PaymentResponse.class);
-                    } catch (Exception e) {
-                        log.error("Failed to deserialize cached response", e);
-                    }
-                } else {
-                    // Delete expired key
-                    idempotencyKeyRepository.delete(key);
-                }
+        return idempotent(merchant, idempotencyKey, PaymentResponse.class, () -> {
+            // Validate order exists
+            Order order = orderRepository.findByIdAndMerchantId(request.getOrderId(), merchant.getId())
+                    .orElseThrow(() -> new RuntimeException("Order not found"));
+            return toPaymentResponse(createPayment(merchant, order, request));
+        });
+    }
+    
+    // Creates the order and its payment in one transaction; idempotency keys are scoped apart from createPayment's
+    public CheckoutResponse checkout(Merchant merchant, CheckoutRequest request, String idempotencyKey) {
+        if (request.getOrder() == null || request.getPayment() == null) {
+            throw new RuntimeException("Order and payment details are required");
+        }
+        String checkoutKey = idempotencyKey == null || idempotencyKey.isEmpty() ? null : "checkout:" + idempotencyKey;
+        return idempotent(merchant, checkoutKey, CheckoutResponse.class, () -> {
+            Order order = orderService.createOrderEntity(merchant, request.getOrder());
+            Payment payment = createPayment(merchant, order, request.getPayment());
+            return new CheckoutResponse(orderService.toOrderResponse(order), toPaymentResponse(payment));
+        });
+    }
+    
+    // Runs action in a transaction at most once per idempotency key. Replays are answered from Redis;
+    // concurrent duplicates wait for the first request or get a conflict.
+    private <T> T idempotent(Merchant merchant, String idempotencyKey, Class<T> responseType, Supplier<T> action) {
+        if (idempotencyKey == null || idempotencyKey.isEmpty()) {
+            return transactionTemplate.execute(status -> action.get());
+        }
+        
+        byte[] stored = idempotencyStore.claim(merchant.getId(), idempotencyKey);
+        if (stored != null) {
+            try {
+                return objectMapper.readValue(stored, responseType);
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to read stored idempotent response", e);
             }
         }
         
-        // Validate order exists
-        Order order = orderRepository.findByIdAndMerchantId(request.getOrderId(), merchant.getId())
-                .orElseThrow(() -> new RuntimeException("Order not found"));
+        try {
+            T response = transactionTemplate.execute(status -> {
+                // Durable idempotency record, used when Redis has lost the key
+                T existing = findStoredResponse(merchant, idempotencyKey, responseType);
+                if (existing != null) {
+                    return existing;
+                }
+                T created = action.get();
+                storeResponse(merchant, idempotencyKey, created);
+                return created;
+            });
+            idempotencyStore.complete(merchant.getId(), idempotencyKey, response);
+            return response;
+        } catch (RuntimeException e) {
+            idempotencyStore.release(merchant.getId(), idempotencyKey);
+            throw e;
+        }
+    }
+    
+    private <T> T findStoredResponse(Merchant merchant, String idempotencyKey, Class<T> responseType) {
+        Optional<IdempotencyKey> existingKey = idempotencyKeyRepository
+                .findByKeyAndMerchantId(idempotencyKey, merchant.getId());
         
-        // Validate payment method
+        if (existingKey.isPresent()) {
+            IdempotencyKey key = existingKey.get();
+            if (key.getExpiresAt().isAfter(LocalDateTime.now())) {
+                // Return cached response
+                try {
+                    return objectMapper.treeToValue(key.getResponse(), responseType);
+                } catch (Exception e) {
+                    log.error("Failed to deserialize cached response", e);
+                }
+            } else {
+                // Delete expired key before the new response is stored under it
+                idempotencyKeyRepository.delete(key);
+                idempotencyKeyRepository.flush();
+            }
+        }
+        return null;
+    }
+    
+    private void storeResponse(Merchant merchant, String idempotencyKey, Object response) {
+        try {
+            IdempotencyKey key = new IdempotencyKey();
+            key.setKey(idempotencyKey);
+            key.setMerchantId(merchant.getId());
+            key.setResponse(objectMapper.valueToTree(response));
+            key.setCreatedAt(LocalDateTime.now());
+            key.setExpiresAt(key.getCreatedAt().plus(Duration.ofMillis(appConfig.getIdempotencyTtlMs())));
+            idempotencyKeyRepository.save(key);
+        } catch (Exception e) {
+            log.error("Failed to save idempotency key", e);
+        }
+    }
+    
+    private void validatePaymentMethod(CreatePaymentRequest request) {
         if (!"upi".equals(request.getMethod()) && !"card".equals(request.getMethod())) {
             throw new RuntimeException("Invalid payment method");
         }
@@ -81,9 +153,13 @@ public class PaymentService {
                 throw new RuntimeException("Card details are required for card payments");
             }
         }
+    }
+    
+    private Payment createPayment(Merchant merchant, Order order, CreatePaymentRequest request) {
+        validatePaymentMethod(request);
         
         // Generate payment ID
-        String paymentId = generateId("pay_");
+        String paymentId = idGenerator.generate("pay_");
         
         // Create payment
         Payment payment = new Payment();
@@ -99,31 +175,17 @@ public class PaymentService {
         payment.setCardCvv(request.getCardCvv());
         payment.setStatus("pending");
         payment.setCaptured(false);
+        payment.setCreatedAt(LocalDateTime.now());
+        payment.setUpdatedAt(payment.getCreatedAt());
         
-        payment = paymentRepository.saveAndFlush(payment);
+        payment = paymentRepository.save(payment);
         
         // Enqueue job for async processing
         jobQueueService.enqueuePaymentJob(payment.getId());
         
-        PaymentResponse response = toPaymentResponse(payment);
-        
-        // Store idempotency key if provided
-        if (idempotencyKey != null && !idempotencyKey.isEmpty()) {
-            try {
-                IdempotencyKey key = new IdempotencyKey();
-                key.setKey(idempotencyKey);
-                key.setMerchantId(merchant.getId());
-                key.setResponse(objectMapper.valueToTree(response));
-                key.setExpiresAt(LocalDateTime.now().plusHours(24));
-                idempotencyKeyRepository.save(key);
-            } catch (Exception e) {
-                log.error("Failed to save idempotency key", e);
-            }
-        }
-        
         log.info("Created payment {} for order {}", paymentId, order.getId());
         
-        return response;
+        return payment;
     }
     
     @Transactional
@@ -140,6 +202,7 @@ public class PaymentService {
         }
         
         payment.setCaptured(true);
+        payment.setUpdatedAt(LocalDateTime.now());
         payment = paymentRepository.save(payment);
         
         log.info("Captured payment {}", paymentId);
@@ -153,14 +216,52 @@ public class PaymentService {
         return toPaymentResponse(payment);
     }
     
-    public List<PaymentResponse> getPayments(Merchant merchant) {
-        return paymentRepository.findByMerchantIdOrderByCreatedAtDesc(merchant.getId())
-                .stream()
-                .map(this::toPaymentResponse)
-                .collect(Collectors.toList());
+    // Completes once the payment has left pending; the caller bounds the wait and cancels the future when giving up
+    public CompletableFuture<PaymentResponse> awaitFinalStatus(Merchant merchant, String paymentId) {
+        CompletableFuture<PaymentResponse> result = new CompletableFuture<>();
+        Runnable onStatus = () -> {
+            try {
+                result.complete(getPayment(merchant, paymentId));
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        };
+        
+        // Register before reading so a status published in between is not missed
+        paymentStatusNotifier.addWaiter(paymentId, onStatus);
+        result.whenComplete((payment, error) -> paymentStatusNotifier.removeWaiter(paymentId, onStatus));
+        try {
+            PaymentResponse payment = getPayment(merchant, paymentId);
+            if (!"pending".equals(payment.getStatus())) {
+                result.complete(payment);
+            }
+        } catch (Exception e) {
+            result.completeExceptionally(e);
+        }
+        return result;
     }
     
-    private PaymentResponse toPaymentResponse(Payment payment) {
+    public CursorPage<PaymentResponse> getPayments(Merchant merchant, Integer limit, String after) {
+        int pageSize = PageCursor.clampLimit(limit);
+        // Fetch one extra row to know whether another page follows
+        List<Payment> payments;
+        if (after == null || after.isEmpty()) {
+            payments = paymentRepository.findFirstPage(merchant.getId(), pageSize + 1);
+        } else {
+            PageCursor cursor = PageCursor.decode(after);
+            payments = paymentRepository.findPageAfter(merchant.getId(), cursor.createdAt(), cursor.id(), pageSize + 1);
+        }
+        
+        String nextCursor = null;
+        if (payments.size() > pageSize) {
+            payments = payments.subList(0, pageSize);
+            Payment last = payments.get(pageSize - 1);
+            nextCursor = new PageCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return new CursorPage<>(payments.stream().map(this::toPaymentResponse).collect(Collectors.toList()), nextCursor);
+    }
+    
+    PaymentResponse toPaymentResponse(Payment payment) {
         return PaymentResponse.builder()
                 .id(payment.getId())
                 .orderId(payment.getOrderId())
@@ -186,12 +287,4 @@ public class PaymentService {
         int maskedLength = cardNumber.length() - visibleDigits;
         return "*".repeat(maskedLength) + cardNumber.substring(maskedLength);
     }
-    
-    private String generateId(String prefix) {
-        StringBuilder sb = new StringBuilder(prefix);
-        for (int i = 0; i < 16; i++) {
-            sb.append(ALPHANUMERIC.charAt(random.nextInt(ALPHANUMERIC.length())));
-        }
-        return sb.toString();
-    }
 }
@@ -0,0 +1,98 @@
+package com.gateway.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Announces over Redis pub/sub that payments have reached a final status, so API nodes can wake
+ * requests waiting on them instead of clients polling the payment.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentStatusNotifier {
+    
+    private static final String TOPIC = "payment-status";
+    private static final int CALLBACK_THREADS = 4;
+    
+    private final RedissonClient redissonClient;
+    
+    private final Map<String, Set<Runnable>> waiters = new ConcurrentHashMap<>();
+    
+    // Waiters read the payment from the database, which must not happen on Redisson's listener thread
+    private final AtomicInteger callbackThreads = new AtomicInteger();
+    private final ExecutorService callbacks = Executors.newFixedThreadPool(CALLBACK_THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "payment-status-waiter-" + callbackThreads.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    @PostConstruct
+    public void subscribe() {
+        topic().addListener(String.class, (channel, paymentIds) -> {
+            for (String paymentId : paymentIds.split(",")) {
+                Set<Runnable> woken = waiters.remove(paymentId);
+                if (woken == null) {
+                    continue;
+                }
+                for (Runnable callback : woken) {
+                    callbacks.execute(() -> {
+                        try {
+                            callback.run();
+                        } catch (Exception e) {
+                            log.error("Payment status waiter failed for {}", paymentId, e);
+                        }
+                    });
+                }
+            }
+        });
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        callbacks.shutdownNow();
+    }
+    
+    // The callback runs at most once, on a callback thread, on the next notification for the payment
+    public void addWaiter(String paymentId, Runnable callback) {
+        waiters.computeIfAbsent(paymentId, id -> ConcurrentHashMap.newKeySet()).add(callback);
+    }
+    
+    public void removeWaiter(String paymentId, Runnable callback) {
+        waiters.computeIfPresent(paymentId, (id, callbacks) -> {
+            callbacks.remove(callback);
+            return callbacks.isEmpty() ? null : callbacks;
+        });
+    }
+    
+    // Call after the final statuses are committed; one message covers the whole batch
+    public void publish(Collection<String> paymentIds) {
+        if (paymentIds.isEmpty()) {
+            return;
+        }
+        try {
+            topic().publish(String.join(",", paymentIds));
+        } catch (Exception e) {
+            // Waiters still return the current status when their timeout expires
+            log.error("Failed to publish status of {} payments", paymentIds.size(), e);
+        }
+    }
+    
+    private RTopic topic() {
+        return redissonClient.getTopic(TOPIC, StringCodec.INSTANCE);
+    }
+}
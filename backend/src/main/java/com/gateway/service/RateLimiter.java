@@ -0,0 +1,187 @@
+package com.gateway.service;
+
+import com.gateway.config.AppConfig;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RAtomicLongAsync;
+import org.redisson.api.RBatch;
+import org.redisson.api.RFuture;
+import org.redisson.api.RedissonClient;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-merchant request limits by endpoint class. Each node admits requests from a local token bucket,
+ * so the check costs no Redis round trip. On every sync the requests admitted since the last sync are
+ * added to a shared per-second counter in Redis; once the cluster-wide count for the current second
+ * reaches the limit, every node rejects that merchant's requests until the second is over.
+ */
+@Service
+@Profile("!worker")
+@RequiredArgsConstructor
+@Slf4j
+public class RateLimiter {
+    
+    private static final String KEY_PREFIX = "ratelimit:";
+    private static final long WINDOW_MS = 1000;
+    private static final long IDLE_EVICT_MS = 60000;
+    
+    private final RedissonClient redissonClient;
+    private final MeterRegistry meterRegistry;
+    private final AppConfig appConfig;
+    
+    private final Map<BucketKey, Bucket> buckets = new ConcurrentHashMap<>();
+    private final Map<EndpointClass, LongAdder> rejected = new EnumMap<>(EndpointClass.class);
+    
+    public enum EndpointClass { READ, WRITE, EXPORT }
+    
+    public record Permit(boolean allowed, long retryAfterMs) {
+    }
+    
+    private record BucketKey(UUID merchantId, EndpointClass endpointClass) {
+    }
+    
+    @PostConstruct
+    public void init() {
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            LongAdder counter = new LongAdder();
+            rejected.put(endpointClass, counter);
+            FunctionCounter.builder("ratelimit.rejected", counter, LongAdder::sum)
+                    .tag("class", endpointClass.name().toLowerCase())
+                    .register(meterRegistry);
+        }
+    }
+    
+    public Permit tryAcquire(UUID merchantId, EndpointClass endpointClass) {
+        Bucket bucket = buckets.computeIfAbsent(new BucketKey(merchantId, endpointClass),
+                key -> new Bucket(ratePerSecond(endpointClass), burst(endpointClass)));
+        Permit permit = bucket.tryAcquire(System.currentTimeMillis());
+        if (!permit.allowed()) {
+            rejected.get(endpointClass).increment();
+        }
+        return permit;
+    }
+    
+    // One Redis batch per sync for all merchants with traffic since the last one
+    @Scheduled(fixedDelayString = "${app.rate-limit.sync-interval-ms:200}")
+    public void sync() {
+        long now = System.currentTimeMillis();
+        long window = now / WINDOW_MS;
+        
+        List<Map.Entry<BucketKey, Bucket>> reported = new ArrayList<>();
+        List<RFuture<Long>> totals = new ArrayList<>();
+        RBatch batch = redissonClient.createBatch();
+        for (Map.Entry<BucketKey, Bucket> entry : buckets.entrySet()) {
+            Bucket bucket = entry.getValue();
+            long admitted = bucket.drainAdmitted();
+            if (admitted == 0) {
+                if (bucket.isIdle(now)) {
+                    buckets.remove(entry.getKey(), bucket);
+                }
+                continue;
+            }
+            BucketKey key = entry.getKey();
+            RAtomicLongAsync counter = batch.getAtomicLong(KEY_PREFIX + key.merchantId() + ":"
+                    + key.endpointClass().name().toLowerCase() + ":" + window);
+            totals.add(counter.addAndGetAsync(admitted));
+            counter.expireAsync(Duration.ofMillis(WINDOW_MS * 2));
+            reported.add(entry);
+        }
+        if (reported.isEmpty()) {
+            return;
+        }
+        
+        try {
+            batch.execute();
+        } catch (Exception e) {
+            // Local buckets keep enforcing the per-node limit while Redis is unavailable
+            log.warn("Rate limit sync failed: {}", e.getMessage());
+            return;
+        }
+        
+        long windowEnd = (window + 1) * WINDOW_MS;
+        for (int i = 0; i < reported.size(); i++) {
+            BucketKey key = reported.get(i).getKey();
+            long total = totals.get(i).toCompletableFuture().join();
+            if (total >= ratePerSecond(key.endpointClass())) {
+                reported.get(i).getValue().blockUntil(windowEnd);
+            }
+        }
+    }
+    
+    private double ratePerSecond(EndpointClass endpointClass) {
+        return switch (endpointClass) {
+            case READ -> appConfig.getRateLimitReadPerSecond();
+            case WRITE -> appConfig.getRateLimitWritePerSecond();
+            case EXPORT -> appConfig.getRateLimitExportPerSecond();
+        };
+    }
+    
+    private double burst(EndpointClass endpointClass) {
+        return switch (endpointClass) {
+            case READ -> appConfig.getRateLimitReadBurst();
+            case WRITE -> appConfig.getRateLimitWriteBurst();
+            case EXPORT -> appConfig.getRateLimitExportBurst();
+        };
+    }
+    
+    private static final class Bucket {
+        private final double ratePerMs;
+        private final double capacity;
+        private double tokens;
+        private long lastRefill;
+        private long lastUsed;
+        private long blockedUntil;
+        private long admitted;
+        
+        private Bucket(double ratePerSecond, double burst) {
+            this.ratePerMs = Math.max(ratePerSecond, 0.001) / 1000;
+            this.capacity = Math.max(burst, 1);
+            this.tokens = capacity;
+            this.lastRefill = System.currentTimeMillis();
+        }
+        
+        // Short critical sections with no blocking calls inside
+        private synchronized Permit tryAcquire(long now) {
+            lastUsed = now;
+            if (now < blockedUntil) {
+                return new Permit(false, blockedUntil - now);
+            }
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * ratePerMs);
+            lastRefill = now;
+            if (tokens < 1) {
+                return new Permit(false, (long) Math.ceil((1 - tokens) / ratePerMs));
+            }
+            tokens--;
+            admitted++;
+            return new Permit(true, 0);
+        }
+        
+        private synchronized long drainAdmitted() {
+            long drained = admitted;
+            admitted = 0;
+            return drained;
+        }
+        
+        private synchronized void blockUntil(long until) {
+            blockedUntil = Math.max(blockedUntil, until);
+        }
+        
+        private synchronized boolean isIdle(long now) {
+            return now - lastUsed > IDLE_EVICT_MS;
+        }
+    }
+}
@@ -12,7 +12,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.security.SecureRandom;
+import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 
 @Service
@@ -23,40 +23,29 @@ public class RefundService {
     private final RefundRepository refundRepository;
     private final PaymentRepository paymentRepository;
     private final JobQueueService jobQueueService;
-    
-    private static final String ALPHANUMERIC = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
-    private static final SecureRandom random = new SecureRandom();
+    private final IdGenerator idGenerator;
     
     @Transactional
     public RefundResponse createRefund(Merchant merchant, String paymentId, CreateRefundRequest request) {
-        // Find payment
-        Payment payment = paymentRepository.findByIdAndMerchantId(paymentId, merchant.getId())
-                .orElseThrow(() -> new RuntimeException("Payment not found"));
-        
-        // Verify payment is refundable
-        if (!"success".equals(payment.getStatus())) {
-            throw new RuntimeException("Payment not in refundable state");
-        }
-        
         // Validate refund amount
         if (request.getAmount() == null || request.getAmount() <= 0) {
             throw new RuntimeException("Invalid refund amount");
         }
         
-        // Calculate total refunded amount
-        Integer totalRefunded = refundRepository.getTotalRefundedAmount(paymentId);
-        if (totalRefunded == null) {
-            totalRefunded = 0;
-        }
-        
-        // Check if refund amount exceeds available amount
-        int availableAmount = payment.getAmount() - totalRefunded;
-        if (request.getAmount() > availableAmount) {
+        // Reserve the amount against the payment's refundable balance; the row lock serializes concurrent refunds
+        int reserved = paymentRepository.reserveRefundAmount(paymentId, merchant.getId(), request.getAmount());
+        if (reserved == 0) {
+            // Find out why for the error message
+            Payment payment = paymentRepository.findByIdAndMerchantId(paymentId, merchant.getId())
+                    .orElseThrow(() -> new RuntimeException("Payment not found"));
+            if (!"success".equals(payment.getStatus())) {
+                throw new RuntimeException("Payment not in refundable state");
+            }
             throw new RuntimeException("Refund amount exceeds available amount");
         }
         
         // Generate refund ID
-        String refundId = generateId("rfnd_");
+        String refundId = idGenerator.generate("rfnd_");
         
         // Create refund
         Refund refund = new Refund();
@@ -66,8 +55,9 @@ public class RefundService {
         refund.setAmount(request.getAmount());
         refund.setReason(request.getReason());
         refund.setStatus("pending");
+        refund.setCreatedAt(LocalDateTime.now());
         
-        refund = refundRepository.saveAndFlush(refund);
+        refund = refundRepository.save(refund);
         
         // Enqueue job for async processing
         jobQueueService.enqueueRefundJob(refund.getId());
@@ -83,7 +73,7 @@ public class RefundService {
         return toRefundResponse(refund);
     }
     
-    private RefundResponse toRefundResponse(Refund refund) {
+    RefundResponse toRefundResponse(Refund refund) {
         return RefundResponse.builder()
                 .id(refund.getId())
                 .paymentId(refund.getPaymentId())
@@ -95,12 +85,4 @@ public class RefundService {
                         refund.getProcessedAt().atZone(ZoneOffset.UTC).toString() : null)
                 .build();
     }
-    
-    private String generateId(String prefix) {
-        StringBuilder sb = new StringBuilder(prefix);
-        for (int i = 0; i < 16; i++) {
-            sb.append(ALPHANUMERIC.charAt(random.nextInt(ALPHANUMERIC.length())));
-        }
-        return sb.toString();
-    }
 }
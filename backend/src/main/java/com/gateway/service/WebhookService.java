@@ -1,10 +1,9 @@
 package com.gateway.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.gateway.config.AppConfig;
-import com.gateway.model.Merchant;
 import com.gateway.model.Payment;
 import com.gateway.model.Refund;
 import com.gateway.model.WebhookLog;
@@ -14,13 +13,11 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.UUID;
 
 @Service
@@ -34,113 +31,85 @@ public class WebhookService {
     private final AppConfig appConfig;
     
     @Transactional
-    public void createWebhook(Merchant merchant, String event, Payment payment) {
+    public void createWebhook(UUID merchantId, String event, Payment payment) {
         try {
-            Map<String, Object> payloadMap = new HashMap<>();
-            payloadMap.put("event", event);
-            payloadMap.put("timestamp", Instant.now().getEpochSecond());
-            
-            Map<String, Object> dataMap = new HashMap<>();
-            Map<String, Object> paymentMap = new HashMap<>();
-            paymentMap.put("id", payment.getId());
-            paymentMap.put("order_id", payment.getOrderId());
-            paymentMap.put("amount", payment.getAmount());
-            paymentMap.put("currency", payment.getCurrency());
-            paymentMap.put("method", payment.getMethod());
-            if (payment.getVpa() != null) {
-                paymentMap.put("vpa", payment.getVpa());
+            ByteArrayOutputStream out = new ByteArrayOutputStream(320);
+            try (JsonGenerator json = startPayload(out, event, "payment")) {
+                json.writeStringField("id", payment.getId());
+                json.writeStringField("order_id", payment.getOrderId());
+                json.writeNumberField("amount", payment.getAmount());
+                json.writeStringField("currency", payment.getCurrency());
+                json.writeStringField("method", payment.getMethod());
+                if (payment.getVpa() != null) {
+                    json.writeStringField("vpa", payment.getVpa());
+                }
+                json.writeStringField("status", payment.getStatus());
+                json.writeStringField("created_at", payment.getCreatedAt().atZone(ZoneOffset.UTC).toString());
+                endPayload(json);
             }
-            paymentMap.put("status", payment.getStatus());
-            paymentMap.put("created_at", payment.getCreatedAt().atZone(ZoneOffset.UTC).toString());
-            
-            dataMap.put("payment", paymentMap);
-            payloadMap.put("data", dataMap);
-            
-            JsonNode payload = objectMapper.valueToTree(payloadMap);
-            
-            WebhookLog webhookLog = new WebhookLog();
-            webhookLog.setMerchantId(merchant.getId());
-            webhookLog.setEvent(event);
-            webhookLog.setPayload(payload);
-            webhookLog.setStatus("pending");
-            webhookLog.setAttempts(0);
-            
-            webhookLog = webhookLogRepository.saveAndFlush(webhookLog);
-            
-            // Enqueue webhook delivery job
-            jobQueueService.enqueueWebhookJob(webhookLog.getId());
             
-            log.info("Created webhook log {} for event {}", webhookLog.getId(), event);
+            saveAndEnqueue(merchantId, event, out.toByteArray());
         } catch (Exception e) {
             log.error("Failed to create webhook", e);
         }
     }
     
     @Transactional
-    public void createRefundWebhook(Merchant merchant, String event, Refund refund, Payment payment) {
+    public void createRefundWebhook(UUID merchantId, String event, Refund refund, Payment payment) {
         try {
-            Map<String, Object> payloadMap = new HashMap<>();
-            payloadMap.put("event", event);
-            payloadMap.put("timestamp", Instant.now().getEpochSecond());
-            
-            Map<String, Object> dataMap = new HashMap<>();
-            Map<String, Object> refundMap = new HashMap<>();
-            refundMap.put("id", refund.getId());
-            refundMap.put("payment_id", refund.getPaymentId());
-            refundMap.put("amount", refund.getAmount());
-            if (refund.getReason() != null) {
-                refundMap.put("reason", refund.getReason());
-            }
-            refundMap.put("status", refund.getStatus());
-            refundMap.put("created_at", refund.getCreatedAt().atZone(ZoneOffset.UTC).toString());
-            if (refund.getProcessedAt() != null) {
-                refundMap.put("processed_at", refund.getProcessedAt().atZone(ZoneOffset.UTC).toString());
+            ByteArrayOutputStream out = new ByteArrayOutputStream(320);
+            try (JsonGenerator json = startPayload(out, event, "refund")) {
+                json.writeStringField("id", refund.getId());
+                json.writeStringField("payment_id", refund.getPaymentId());
+                json.writeNumberField("amount", refund.getAmount());
+                if (refund.getReason() != null) {
+                    json.writeStringField("reason", refund.getReason());
+                }
+                json.writeStringField("status", refund.getStatus());
+                json.writeStringField("created_at", refund.getCreatedAt().atZone(ZoneOffset.UTC).toString());
+                if (refund.getProcessedAt() != null) {
+                    json.writeStringField("processed_at", refund.getProcessedAt().atZone(ZoneOffset.UTC).toString());
+                }
+                endPayload(json);
             }
             
-            dataMap.put("refund", refundMap);
-            payloadMap.put("data", dataMap);
-            
-            JsonNode payload = objectMapper.valueToTree(payloadMap);
-            
-            WebhookLog webhookLog = new WebhookLog();
-            webhookLog.setMerchantId(merchant.getId());
-            webhookLog.setEvent(event);
-            webhookLog.setPayload(payload);
-            webhookLog.setStatus("pending");
-            webhookLog.setAttempts(0);
-            
-            webhookLog = webhookLogRepository.saveAndFlush(webhookLog);
-            
-            // Enqueue webhook delivery job
-            jobQueueService.enqueueWebhookJob(webhookLog.getId());
-            
-            log.info("Created webhook log {} for event {}", webhookLog.getId(), event);
+            saveAndEnqueue(merchantId, event, out.toByteArray());
         } catch (Exception e) {
             log.error("Failed to create webhook", e);
         }
     }
     
-    public String generateSignature(String payload, String secret) {
-        try {
-            Mac sha256Hmac = Mac.getInstance("HmacSHA256");
-            SecretKeySpec secretKey = new SecretKeySpec(secret.getBytes(), "HmacSHA256");
-            sha256Hmac.init(secretKey);
-            byte[] hash = sha256Hmac.doFinal(payload.getBytes());
-            
-            // Convert to hex string
-            StringBuilder hexString = new StringBuilder();
-            for (byte b : hash) {
-                String hex = Integer.toHexString(0xff & b);
-                if (hex.length() == 1) {
-                    hexString.append('0');
-                }
-                hexString.append(hex);
-            }
-            return hexString.toString();
-        } catch (Exception e) {
-            log.error("Failed to generate HMAC signature", e);
-            throw new RuntimeException("Failed to generate signature", e);
-        }
+    // Payloads are written field by field in a fixed order: {"event","timestamp","data":{"<entity>":{...}}}
+    private JsonGenerator startPayload(ByteArrayOutputStream out, String event, String entity) throws IOException {
+        JsonGenerator json = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+        json.writeStartObject();
+        json.writeStringField("event", event);
+        json.writeNumberField("timestamp", Instant.now().getEpochSecond());
+        json.writeObjectFieldStart("data");
+        json.writeObjectFieldStart(entity);
+        return json;
+    }
+    
+    private void endPayload(JsonGenerator json) throws IOException {
+        json.writeEndObject();
+        json.writeEndObject();
+        json.writeEndObject();
+    }
+    
+    private void saveAndEnqueue(UUID merchantId, String event, byte[] payload) {
+        WebhookLog webhookLog = new WebhookLog();
+        webhookLog.setMerchantId(merchantId);
+        webhookLog.setEvent(event);
+        webhookLog.setPayload(payload);
+        webhookLog.setStatus("pending");
+        webhookLog.setAttempts(0);
+        
+        webhookLog = webhookLogRepository.save(webhookLog);
+        
+        // Enqueue webhook delivery job
+        jobQueueService.enqueueWebhookJob(webhookLog.getId());
+        
+        log.info("Created webhook log {} for event {}", webhookLog.getId(), event);
     }
     
     public long getRetryDelay(int attemptNumber) {
@@ -0,0 +1,85 @@
+package com.gateway.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * HMAC-SHA256 webhook signatures. An initialized Mac is kept per merchant and cloned for each
+ * signature, so the provider lookup and key schedule are paid once per secret rather than per delivery.
+ * Cached keys are dropped when the merchant changes.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class WebhookSigner {
+    
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    
+    private final MerchantChangeNotifier merchantChangeNotifier;
+    
+    private final Map<UUID, CachedKey> keys = new ConcurrentHashMap<>();
+    
+    private record CachedKey(String secret, Mac prototype) {
+    }
+    
+    @PostConstruct
+    public void subscribe() {
+        merchantChangeNotifier.addListener(this::invalidate);
+    }
+    
+    public String sign(UUID merchantId, String secret, byte[] payload) {
+        try {
+            return toHex(mac(merchantId, secret).doFinal(payload));
+        } catch (Exception e) {
+            log.error("Failed to generate HMAC signature", e);
+            throw new RuntimeException("Failed to generate signature", e);
+        }
+    }
+    
+    public void invalidate(UUID merchantId) {
+        keys.remove(merchantId);
+    }
+    
+    boolean hasCachedKey(UUID merchantId) {
+        return keys.containsKey(merchantId);
+    }
+    
+    private Mac mac(UUID merchantId, String secret) throws Exception {
+        CachedKey cached = keys.get(merchantId);
+        // A rotated secret replaces the cached key
+        if (cached == null || !cached.secret().equals(secret)) {
+            cached = new CachedKey(secret, newMac(secret));
+            keys.put(merchantId, cached);
+        }
+        try {
+            return (Mac) cached.prototype().clone();
+        } catch (CloneNotSupportedException e) {
+            return newMac(secret);
+        }
+    }
+    
+    private static Mac newMac(String secret) throws Exception {
+        Mac mac = Mac.getInstance(ALGORITHM);
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM));
+        return mac;
+    }
+    
+    private static String toHex(byte[] hash) {
+        char[] hex = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            hex[i * 2] = HEX[(hash[i] >> 4) & 0x0f];
+            hex[i * 2 + 1] = HEX[hash[i] & 0x0f];
+        }
+        return new String(hex);
+    }
+}
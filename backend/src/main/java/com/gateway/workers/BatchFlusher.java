@@ -0,0 +1,87 @@
+package com.gateway.workers;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Collects completed jobs from pool threads and writes them in batches on a single
+ * flusher thread. While a flush is running new completions accumulate, so the batch
+ * size grows with load without adding latency when the system is idle.
+ */
+@Slf4j
+public class BatchFlusher<T> {
+    
+    private final String name;
+    private final int maxBatchSize;
+    private final long pollIntervalMs;
+    private final Consumer<List<T>> flushAction;
+    private final BlockingQueue<T> pending = new LinkedBlockingQueue<>();
+    private final Thread flusherThread;
+    private volatile boolean running = true;
+    
+    public BatchFlusher(String name, int maxBatchSize, long pollIntervalMs, Consumer<List<T>> flushAction) {
+        this.name = name;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.pollIntervalMs = pollIntervalMs;
+        this.flushAction = flushAction;
+        this.flusherThread = new Thread(this::run, name);
+        this.flusherThread.setDaemon(false);
+    }
+    
+    public void start() {
+        flusherThread.start();
+    }
+    
+    public void add(T item) {
+        pending.add(item);
+    }
+    
+    public int getPending() {
+        return pending.size();
+    }
+    
+    // Stops accepting work once everything queued so far has been flushed
+    public void stop(long timeoutMs) {
+        running = false;
+        try {
+            flusherThread.join(timeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!pending.isEmpty()) {
+            log.warn("{} stopped with {} unflushed items", name, pending.size());
+        }
+    }
+    
+    private void run() {
+        while (running || !pending.isEmpty()) {
+            try {
+                T first = pending.poll(pollIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<T> batch = new ArrayList<>(maxBatchSize);
+                batch.add(first);
+                pending.drainTo(batch, maxBatchSize - 1);
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+    
+    private void flush(List<T> batch) {
+        try {
+            flushAction.accept(batch);
+        } catch (Exception e) {
+            log.error("{} failed to flush batch of {}", name, batch.size(), e);
+        }
+    }
+}
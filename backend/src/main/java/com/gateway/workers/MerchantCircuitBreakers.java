@@ -0,0 +1,129 @@
+package com.gateway.workers;
+
+import com.gateway.config.AppConfig;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Per-merchant isolation for webhook delivery: a bulkhead limiting concurrent requests to one
+ * merchant, and a circuit breaker that opens after consecutive failures so a dead endpoint stops
+ * consuming delivery capacity. After the open period a single probe is let through (half-open);
+ * its outcome closes or re-opens the circuit. State is kept per node.
+ */
+@Component
+@Profile("!api")
+@RequiredArgsConstructor
+@Slf4j
+public class MerchantCircuitBreakers {
+    
+    private final AppConfig appConfig;
+    
+    private final Map<UUID, Breaker> breakers = new ConcurrentHashMap<>();
+    
+    public record Permit(boolean allowed, long retryAfterMs) {
+    }
+    
+    private enum State { CLOSED, OPEN, HALF_OPEN }
+    
+    public Permit tryAcquire(UUID merchantId) {
+        return breaker(merchantId).tryAcquire(System.currentTimeMillis());
+    }
+    
+    // Must be called exactly once for every allowed permit
+    public void onResult(UUID merchantId, boolean success) {
+        breaker(merchantId).onResult(merchantId, success, System.currentTimeMillis());
+    }
+    
+    // Give back an allowed permit whose request was never sent
+    public void cancel(UUID merchantId) {
+        breaker(merchantId).cancel();
+    }
+    
+    public long getOpenCircuits() {
+        return breakers.values().stream().filter(Breaker::isOpen).count();
+    }
+    
+    private Breaker breaker(UUID merchantId) {
+        return breakers.computeIfAbsent(merchantId, id -> new Breaker(appConfig.getWebhookMaxInFlightPerMerchant()));
+    }
+    
+    private final class Breaker {
+        private final Semaphore bulkhead;
+        private State state = State.CLOSED;
+        private int consecutiveFailures;
+        private long openUntil;
+        private boolean probeInFlight;
+        
+        private Breaker(int maxInFlight) {
+            this.bulkhead = new Semaphore(Math.max(1, maxInFlight));
+        }
+        
+        // Short critical sections with no blocking calls inside
+        private synchronized Permit tryAcquire(long now) {
+            if (state == State.OPEN) {
+                if (now < openUntil) {
+                    return new Permit(false, openUntil - now);
+                }
+                state = State.HALF_OPEN;
+                probeInFlight = false;
+            }
+            
+            boolean probe = false;
+            if (state == State.HALF_OPEN) {
+                if (probeInFlight) {
+                    return new Permit(false, appConfig.getWebhookHostBusyRetryMs());
+                }
+                probeInFlight = true;
+                probe = true;
+            }
+            
+            if (!bulkhead.tryAcquire()) {
+                if (probe) {
+                    probeInFlight = false;
+                }
+                return new Permit(false, appConfig.getWebhookHostBusyRetryMs());
+            }
+            return new Permit(true, 0);
+        }
+        
+        private synchronized void onResult(UUID merchantId, boolean success, long now) {
+            bulkhead.release();
+            if (success) {
+                if (state != State.CLOSED) {
+                    log.info("Webhook circuit for merchant {} closed", merchantId);
+                }
+                state = State.CLOSED;
+                consecutiveFailures = 0;
+                probeInFlight = false;
+                return;
+            }
+            
+            consecutiveFailures++;
+            if (state == State.HALF_OPEN || consecutiveFailures >= appConfig.getWebhookCircuitFailureThreshold()) {
+                if (state != State.OPEN) {
+                    log.warn("Webhook circuit for merchant {} opened after {} consecutive failures",
+                            merchantId, consecutiveFailures);
+                }
+                state = State.OPEN;
+                openUntil = now + appConfig.getWebhookCircuitOpenMs();
+                probeInFlight = false;
+            }
+        }
+        
+        private synchronized void cancel() {
+            bulkhead.release();
+            probeInFlight = false;
+        }
+        
+        private synchronized boolean isOpen() {
+            return state != State.CLOSED;
+        }
+    }
+}
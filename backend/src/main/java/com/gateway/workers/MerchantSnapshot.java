@@ -0,0 +1,14 @@
+package com.gateway.workers;
+
+import com.gateway.model.Merchant;
+
+import java.util.UUID;
+
+// Immutable view of the merchant fields webhook delivery needs
+public record MerchantSnapshot(UUID id, String webhookUrl, String webhookSecret, boolean webhookBatching) {
+    
+    public static MerchantSnapshot of(Merchant merchant) {
+        return new MerchantSnapshot(merchant.getId(), merchant.getWebhookUrl(), merchant.getWebhookSecret(),
+                Boolean.TRUE.equals(merchant.getWebhookBatching()));
+    }
+}
@@ -0,0 +1,66 @@
+package com.gateway.workers;
+
+import com.gateway.config.AppConfig;
+import com.gateway.repository.MerchantRepository;
+import com.gateway.service.MerchantChangeNotifier;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Read-through cache of merchant snapshots shared by the workers. Entries are dropped on merchant
+ * change notifications and expire after a TTL to cover changes made outside the application.
+ */
+@Component
+@Profile("!api")
+@RequiredArgsConstructor
+public class MerchantSnapshotCache {
+    
+    private final MerchantRepository merchantRepository;
+    private final MerchantChangeNotifier merchantChangeNotifier;
+    private final AppConfig appConfig;
+    
+    private final Map<UUID, CachedSnapshot> snapshots = new ConcurrentHashMap<>();
+    
+    private record CachedSnapshot(MerchantSnapshot snapshot, long expiresAt) {
+    }
+    
+    @PostConstruct
+    public void init() {
+        merchantChangeNotifier.addListener(snapshots::remove);
+    }
+    
+    // Missing merchants are loaded with one query; ids that do not exist are absent from the result
+    public Map<UUID, MerchantSnapshot> getAll(Collection<UUID> merchantIds) {
+        long now = System.currentTimeMillis();
+        Map<UUID, MerchantSnapshot> result = new HashMap<>();
+        Set<UUID> missing = new HashSet<>();
+        for (UUID merchantId : merchantIds) {
+            CachedSnapshot cached = snapshots.get(merchantId);
+            if (cached != null && cached.expiresAt() > now) {
+                result.put(merchantId, cached.snapshot());
+            } else {
+                missing.add(merchantId);
+            }
+        }
+        
+        if (!missing.isEmpty()) {
+            long expiresAt = now + appConfig.getMerchantCacheTtlMs();
+            merchantRepository.findAllById(missing).forEach(merchant -> {
+                MerchantSnapshot snapshot = MerchantSnapshot.of(merchant);
+                snapshots.put(merchant.getId(), new CachedSnapshot(snapshot, expiresAt));
+                result.put(merchant.getId(), snapshot);
+            });
+        }
+        return result;
+    }
+}
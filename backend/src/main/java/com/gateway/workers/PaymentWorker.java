@@ -2,54 +2,89 @@ package com.gateway.workers;
 
 import com.gateway.config.AppConfig;
 import com.gateway.jobs.ProcessPaymentJob;
-import com.gateway.model.Merchant;
 import com.gateway.model.Payment;
-import com.gateway.repository.MerchantRepository;
 import com.gateway.repository.PaymentRepository;
+import com.gateway.service.JobQueueService;
+import com.gateway.service.PaymentStatusNotifier;
 import com.gateway.service.WebhookService;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.redisson.api.RBlockingQueue;
-import org.redisson.api.RedissonClient;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.Random;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Component
+@Profile("!api")
 @RequiredArgsConstructor
 @Slf4j
 public class PaymentWorker {
     
-    private final RedissonClient redissonClient;
     private final PaymentRepository paymentRepository;
-    private final MerchantRepository merchantRepository;
     private final WebhookService webhookService;
+    private final PaymentStatusNotifier paymentStatusNotifier;
+    private final JobQueueService jobQueueService;
+    private final TransactionTemplate transactionTemplate;
     private final AppConfig appConfig;
     
-    private static final String PAYMENT_QUEUE = "payment-jobs";
-    private static final Random random = new Random();
     private volatile boolean running = true;
+    private WorkerPool pool;
+    private BatchFlusher<Payment> completions;
     
     @EventListener(ApplicationReadyEvent.class)
     public void start() {
-        Thread workerThread = new Thread(this::processJobs, "payment-worker");
+        pool = new WorkerPool("payment-worker", appConfig.getPaymentWorkerConcurrency(),
+                VirtualThreads.isEnabled(appConfig));
+        completions = new BatchFlusher<>("payment-worker-flusher", appConfig.getWorkerBatchSize(),
+                appConfig.getWorkerFlushIntervalMs(), this::flushCompletedPayments);
+        completions.start();
+        Thread workerThread = new Thread(this::processJobs, "payment-worker-poller");
         workerThread.setDaemon(false);
         workerThread.start();
-        log.info("Payment worker started");
+        log.info("Payment worker started with concurrency {}", pool.getConcurrency());
+    }
+    
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (pool != null) {
+            pool.shutdown(appConfig.getWorkerShutdownTimeoutMs());
+        }
+        if (completions != null) {
+            completions.stop(appConfig.getWorkerShutdownTimeoutMs());
+        }
     }
     
     private void processJobs() {
-        RBlockingQueue<ProcessPaymentJob> queue = redissonClient.getBlockingQueue(PAYMENT_QUEUE);
-        
         while (running) {
             try {
-                ProcessPaymentJob job = queue.poll(5, TimeUnit.SECONDS);
+                // Back off while every slot is busy; the job stays in Redis for other nodes
+                if (!pool.reserve(appConfig.getWorkerBackoffMs())) {
+                    continue;
+                }
+                int slots = 1 + pool.reserveMore(appConfig.getWorkerBatchSize() - 1);
+                
+                List<ProcessPaymentJob> jobs;
+                try {
+                    jobs = jobQueueService.claimBatch(JobQueueService.PAYMENT_QUEUE, slots, 5, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    pool.release(slots);
+                    throw e;
+                }
+                pool.release(slots - jobs.size());
                 
-                if (job != null) {
-                    processPayment(job);
+                if (!jobs.isEmpty()) {
+                    dispatch(jobs);
                 }
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
@@ -60,23 +95,51 @@ public class PaymentWorker {
         }
     }
     
-    private void processPayment(ProcessPaymentJob job) {
+    private void dispatch(List<ProcessPaymentJob> jobs) {
+        // Load the whole batch with one query
+        Map<String, Payment> payments;
         try {
-            log.info("Processing payment: {}", job.getPaymentId());
+            Set<String> paymentIds = jobs.stream().map(ProcessPaymentJob::getPaymentId).collect(Collectors.toSet());
+            payments = paymentRepository.findAllById(paymentIds).stream()
+                    .collect(Collectors.toMap(Payment::getId, Function.identity()));
+        } catch (Exception e) {
+            log.error("Failed to load batch of {} payments", jobs.size(), e);
+            pool.release(jobs.size());
+            jobs.forEach(job -> jobQueueService.requeue(JobQueueService.PAYMENT_QUEUE, job));
+            return;
+        }
+        
+        for (ProcessPaymentJob job : jobs) {
+            Payment payment = payments.get(job.getPaymentId());
+            if (payment == null) {
+                log.error("Payment {} not found", job.getPaymentId());
+                pool.release();
+                jobQueueService.ack(JobQueueService.PAYMENT_QUEUE, job);
+                continue;
+            }
             
-            // Small delay to ensure transaction is committed
-            Thread.sleep(100);
+            // A re-delivered job may already have been processed by a consumer that died before acking
+            if (!"pending".equals(payment.getStatus())) {
+                log.info("Payment {} already {}, skipping", payment.getId(), payment.getStatus());
+                pool.release();
+                jobQueueService.ack(JobQueueService.PAYMENT_QUEUE, job);
+                continue;
+            }
             
-            // Fetch payment
-            Payment payment = paymentRepository.findById(job.getPaymentId())
-                    .orElseThrow(() -> new RuntimeException("Payment not found"));
+            pool.submit(() -> processPayment(job, payment));
+        }
+    }
+    
+    private void processPayment(ProcessPaymentJob job, Payment payment) {
+        try {
+            log.info("Processing payment: {}", payment.getId());
             
             // Simulate processing delay
             long delay;
             if (appConfig.isTestMode()) {
                 delay = appConfig.getTestProcessingDelay();
             } else {
-                delay = 5000 + random.nextInt(5001); // 5-10 seconds
+                delay = 5000 + ThreadLocalRandom.current().nextInt(5001); // 5-10 seconds
             }
             Thread.sleep(delay);
             
@@ -87,9 +150,9 @@ public class PaymentWorker {
             } else {
                 // UPI: 90% success, Card: 95% success
                 if ("upi".equals(payment.getMethod())) {
-                    success = random.nextDouble() < 0.90;
+                    success = ThreadLocalRandom.current().nextDouble() < 0.90;
                 } else {
-                    success = random.nextDouble() < 0.95;
+                    success = ThreadLocalRandom.current().nextDouble() < 0.95;
                 }
             }
             
@@ -104,17 +167,47 @@ public class PaymentWorker {
                 log.info("Payment {} failed", payment.getId());
             }
             
-            payment = paymentRepository.save(payment);
-            
-            // Fetch merchant and enqueue webhook
-            Merchant merchant = merchantRepository.findById(payment.getMerchantId())
-                    .orElseThrow(() -> new RuntimeException("Merchant not found"));
-            
-            String event = success ? "payment.success" : "payment.failed";
-            webhookService.createWebhook(merchant, event, payment);
-            
+            // Persisted together with other completed payments
+            completions.add(payment);
+        
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            jobQueueService.requeue(JobQueueService.PAYMENT_QUEUE, job);
         } catch (Exception e) {
             log.error("Failed to process payment job: {}", job.getPaymentId(), e);
+            jobQueueService.ack(JobQueueService.PAYMENT_QUEUE, job);
         }
     }
+    
+    void flushCompletedPayments(List<Payment> payments) {
+        List<Payment> updated;
+        try {
+            updated = transactionTemplate.execute(status -> {
+                // Payments another consumer already completed are left alone and get no second webhook
+                List<Payment> changed = paymentRepository.batchUpdateStatus(payments);
+                
+                // Enqueue webhooks; the webhook log inserts share this transaction's JDBC batch
+                for (Payment payment : changed) {
+                    String event = "success".equals(payment.getStatus()) ? "payment.success" : "payment.failed";
+                    webhookService.createWebhook(payment.getMerchantId(), event, payment);
+                }
+                return changed;
+            });
+        } catch (Exception e) {
+            log.error("Failed to persist batch of {} payments, re-queueing", payments.size(), e);
+            payments.forEach(payment -> jobQueueService.requeue(JobQueueService.PAYMENT_QUEUE,
+                    new ProcessPaymentJob(payment.getId())));
+            return;
+        }
+        payments.forEach(payment -> jobQueueService.ack(JobQueueService.PAYMENT_QUEUE,
+                new ProcessPaymentJob(payment.getId())));
+        
+        if (updated.size() < payments.size()) {
+            log.info("{} of {} payments were no longer pending and were skipped", payments.size() - updated.size(),
+                    payments.size());
+        }
+        
+        // Wake API requests waiting on these payments; the statuses are committed by now
+        paymentStatusNotifier.publish(updated.stream().map(Payment::getId).toList());
+    }
 }
@@ -1,57 +1,97 @@
 package com.gateway.workers;
 
+import com.gateway.config.AppConfig;
 import com.gateway.jobs.ProcessRefundJob;
-import com.gateway.model.Merchant;
 import com.gateway.model.Payment;
 import com.gateway.model.Refund;
-import com.gateway.repository.MerchantRepository;
 import com.gateway.repository.PaymentRepository;
 import com.gateway.repository.RefundRepository;
+import com.gateway.service.JobQueueService;
 import com.gateway.service.WebhookService;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.redisson.api.RBlockingQueue;
-import org.redisson.api.RedissonClient;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
-import java.util.Random;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Component
+@Profile("!api")
 @RequiredArgsConstructor
 @Slf4j
 public class RefundWorker {
     
-    private final RedissonClient redissonClient;
     private final RefundRepository refundRepository;
     private final PaymentRepository paymentRepository;
-    private final MerchantRepository merchantRepository;
     private final WebhookService webhookService;
+    private final JobQueueService jobQueueService;
+    private final TransactionTemplate transactionTemplate;
+    private final AppConfig appConfig;
     
-    private static final String REFUND_QUEUE = "refund-jobs";
-    private static final Random random = new Random();
     private volatile boolean running = true;
+    private WorkerPool pool;
+    private BatchFlusher<ProcessedRefund> completions;
+    
+    record ProcessedRefund(Refund refund, Payment payment) {
+    }
     
     @EventListener(ApplicationReadyEvent.class)
     public void start() {
-        Thread workerThread = new Thread(this::processJobs, "refund-worker");
+        pool = new WorkerPool("refund-worker", appConfig.getRefundWorkerConcurrency(),
+                VirtualThreads.isEnabled(appConfig));
+        completions = new BatchFlusher<>("refund-worker-flusher", appConfig.getWorkerBatchSize(),
+                appConfig.getWorkerFlushIntervalMs(), this::flushProcessedRefunds);
+        completions.start();
+        Thread workerThread = new Thread(this::processJobs, "refund-worker-poller");
         workerThread.setDaemon(false);
         workerThread.start();
-        log.info("Refund worker started");
+        log.info("Refund worker started with concurrency {}", pool.getConcurrency());
+    }
+    
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (pool != null) {
+            pool.shutdown(appConfig.getWorkerShutdownTimeoutMs());
+        }
+        if (completions != null) {
+            completions.stop(appConfig.getWorkerShutdownTimeoutMs());
+        }
     }
     
     private void processJobs() {
-        RBlockingQueue<ProcessRefundJob> queue = redissonClient.getBlockingQueue(REFUND_QUEUE);
-        
         while (running) {
             try {
-                ProcessRefundJob job = queue.poll(5, TimeUnit.SECONDS);
+                // Back off while every slot is busy; the job stays in Redis for other nodes
+                if (!pool.reserve(appConfig.getWorkerBackoffMs())) {
+                    continue;
+                }
+                int slots = 1 + pool.reserveMore(appConfig.getWorkerBatchSize() - 1);
                 
-                if (job != null) {
-                    processRefund(job);
+                List<ProcessRefundJob> jobs;
+                try {
+                    jobs = jobQueueService.claimBatch(JobQueueService.REFUND_QUEUE, slots, 5, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    pool.release(slots);
+                    throw e;
+                }
+                pool.release(slots - jobs.size());
+                
+                if (!jobs.isEmpty()) {
+                    dispatch(jobs);
                 }
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
@@ -62,46 +102,103 @@ public class RefundWorker {
         }
     }
     
-    private void processRefund(ProcessRefundJob job) {
+    private void dispatch(List<ProcessRefundJob> jobs) {
+        // Load refunds and their payments with one query each
+        Map<String, Refund> refunds;
+        Map<String, Payment> payments;
         try {
-            log.info("Processing refund: {}", job.getRefundId());
-            
-            // Small delay to ensure transaction is committed
-            Thread.sleep(100);
-            
-            // Fetch refund
-            Refund refund = refundRepository.findById(job.getRefundId())
-                    .orElseThrow(() -> new RuntimeException("Refund not found"));
+            Set<String> refundIds = jobs.stream().map(ProcessRefundJob::getRefundId).collect(Collectors.toSet());
+            refunds = refundRepository.findAllById(refundIds).stream()
+                    .collect(Collectors.toMap(Refund::getId, Function.identity()));
+            Set<String> paymentIds = refunds.values().stream().map(Refund::getPaymentId).collect(Collectors.toSet());
+            payments = paymentRepository.findAllById(paymentIds).stream()
+                    .collect(Collectors.toMap(Payment::getId, Function.identity()));
+        } catch (Exception e) {
+            log.error("Failed to load batch of {} refunds", jobs.size(), e);
+            pool.release(jobs.size());
+            jobs.forEach(job -> jobQueueService.requeue(JobQueueService.REFUND_QUEUE, job));
+            return;
+        }
+        
+        for (ProcessRefundJob job : jobs) {
+            Refund refund = refunds.get(job.getRefundId());
+            Payment payment = refund != null ? payments.get(refund.getPaymentId()) : null;
+            if (refund == null || payment == null) {
+                log.error("Refund {} or its payment not found", job.getRefundId());
+                skip(job);
+                continue;
+            }
             
-            // Fetch payment
-            Payment payment = paymentRepository.findById(refund.getPaymentId())
-                    .orElseThrow(() -> new RuntimeException("Payment not found"));
+            // A re-delivered job may already have been processed by a consumer that died before acking
+            if (!"pending".equals(refund.getStatus())) {
+                log.info("Refund {} already {}, skipping", refund.getId(), refund.getStatus());
+                skip(job);
+                continue;
+            }
             
             // Verify payment is in refundable state
             if (!"success".equals(payment.getStatus())) {
                 log.error("Payment {} not in refundable state", payment.getId());
-                return;
+                skip(job);
+                continue;
             }
             
+            pool.submit(() -> processRefund(job, refund, payment));
+        }
+    }
+    
+    private void skip(ProcessRefundJob job) {
+        pool.release();
+        jobQueueService.ack(JobQueueService.REFUND_QUEUE, job);
+    }
+    
+    private void processRefund(ProcessRefundJob job, Refund refund, Payment payment) {
+        try {
+            log.info("Processing refund: {}", refund.getId());
+            
             // Simulate refund processing delay (3-5 seconds)
-            long delay = 3000 + random.nextInt(2001);
+            long delay = 3000 + ThreadLocalRandom.current().nextInt(2001);
             Thread.sleep(delay);
             
             // Update refund status
             refund.setStatus("processed");
             refund.setProcessedAt(LocalDateTime.now());
-            refund = refundRepository.save(refund);
             
             log.info("Refund {} processed", refund.getId());
             
-            // Fetch merchant and enqueue webhook
-            Merchant merchant = merchantRepository.findById(refund.getMerchantId())
-                    .orElseThrow(() -> new RuntimeException("Merchant not found"));
-            
-            webhookService.createRefundWebhook(merchant, "refund.processed", refund, payment);
-            
+            // Persisted together with other processed refunds
+            completions.add(new ProcessedRefund(refund, payment));
+        
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            jobQueueService.requeue(JobQueueService.REFUND_QUEUE, job);
         } catch (Exception e) {
             log.error("Failed to process refund job: {}", job.getRefundId(), e);
+            jobQueueService.ack(JobQueueService.REFUND_QUEUE, job);
+        }
+    }
+    
+    void flushProcessedRefunds(List<ProcessedRefund> processed) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                // Refunds another consumer already processed are left alone and get no second webhook
+                Set<Refund> updated = Collections.newSetFromMap(new IdentityHashMap<>());
+                updated.addAll(refundRepository.batchUpdateStatus(processed.stream().map(ProcessedRefund::refund).toList()));
+                
+                // Enqueue webhooks
+                for (ProcessedRefund p : processed) {
+                    if (updated.contains(p.refund())) {
+                        webhookService.createRefundWebhook(p.refund().getMerchantId(), "refund.processed", p.refund(), p.payment());
+                    }
+                }
+            });
+        } catch (Exception e) {
+            log.error("Failed to persist batch of {} refunds, re-queueing", processed.size(), e);
+            processed.forEach(p -> jobQueueService.requeue(JobQueueService.REFUND_QUEUE,
+                    new ProcessRefundJob(p.refund().getId())));
+            return;
         }
+        processed.forEach(p -> jobQueueService.ack(JobQueueService.REFUND_QUEUE,
+                new ProcessRefundJob(p.refund().getId())));
     }
 }
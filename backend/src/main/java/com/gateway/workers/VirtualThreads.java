@@ -0,0 +1,69 @@
+package com.gateway.workers;
+
+import com.gateway.config.AppConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Virtual thread factories on Java 21+, looked up reflectively so the code still builds and runs on
+ * Java 17. Callers fall back to platform threads when {@link #isEnabled(AppConfig)} is false.
+ */
+@Slf4j
+final class VirtualThreads {
+    
+    private static final Method OF_VIRTUAL = lookup(Thread.class, "ofVirtual");
+    
+    private VirtualThreads() {
+    }
+    
+    static boolean isAvailable() {
+        return OF_VIRTUAL != null;
+    }
+    
+    // Whether virtual threads were requested and the running JVM supports them
+    static boolean isEnabled(AppConfig appConfig) {
+        if (!appConfig.isVirtualThreadsEnabled()) {
+            return false;
+        }
+        if (!isAvailable()) {
+            log.warn("Virtual threads requested but not supported by Java {}, using platform threads",
+                    Runtime.version().feature());
+            return false;
+        }
+        return true;
+    }
+    
+    // Threads are named prefix-1, prefix-2, ...
+    static ThreadFactory factory(String prefix) {
+        try {
+            Object builder = OF_VIRTUAL.invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix + "-", 1L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads are not available", e);
+        }
+    }
+    
+    // One new virtual thread per task; concurrency is bounded by the caller, not the executor
+    static ExecutorService newThreadPerTaskExecutor(String prefix) {
+        try {
+            Method method = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) method.invoke(null, factory(prefix));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads are not available", e);
+        }
+    }
+    
+    private static Method lookup(Class<?> type, String name) {
+        try {
+            return type.getMethod(name);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
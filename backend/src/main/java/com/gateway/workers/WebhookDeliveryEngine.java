@@ -0,0 +1,333 @@
+package com.gateway.workers;
+
+import com.gateway.config.AppConfig;
+import com.gateway.jobs.DeliverWebhookJob;
+import com.gateway.model.WebhookLog;
+import com.gateway.service.JobQueueService;
+import com.gateway.service.WebhookService;
+import com.gateway.service.WebhookSigner;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Sends webhooks with HttpClient.sendAsync so a slow endpoint holds a permit rather than a thread.
+ * In-flight requests are capped globally, per destination host and per merchant; a job that
+ * cannot be sent yet is parked in the delayed queue instead of waiting here. Merchants that opt in
+ * to batching receive the events of a short window as one signed JSON array.
+ */
+@Component
+@Profile("!api")
+@Slf4j
+public class WebhookDeliveryEngine {
+    
+    private final WebhookService webhookService;
+    private final WebhookSigner webhookSigner;
+    private final JobQueueService jobQueueService;
+    private final MerchantCircuitBreakers circuitBreakers;
+    private final AppConfig appConfig;
+    
+    private final HttpClient httpClient;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    private final Map<String, Semaphore> inFlightPerHost = new ConcurrentHashMap<>();
+    private final Map<UUID, PendingBatch> pendingBatches = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService batchTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "webhook-batch-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    private static final class PendingBatch {
+        private final MerchantSnapshot merchant;
+        private final Consumer<WebhookLog> onComplete;
+        private final List<WebhookLog> webhookLogs = new ArrayList<>();
+        
+        private PendingBatch(MerchantSnapshot merchant, Consumer<WebhookLog> onComplete) {
+            this.merchant = merchant;
+            this.onComplete = onComplete;
+        }
+    }
+    
+    public WebhookDeliveryEngine(WebhookService webhookService, WebhookSigner webhookSigner,
+                                 JobQueueService jobQueueService, MerchantCircuitBreakers circuitBreakers,
+                                 AppConfig appConfig) {
+        this.webhookService = webhookService;
+        this.webhookSigner = webhookSigner;
+        this.jobQueueService = jobQueueService;
+        this.circuitBreakers = circuitBreakers;
+        this.appConfig = appConfig;
+        HttpClient.Builder httpClientBuilder = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(appConfig.getWebhookTimeoutMs()));
+        if (VirtualThreads.isEnabled(appConfig)) {
+            // Response handling and completion callbacks run on virtual threads instead of the client's cached pool
+            httpClientBuilder.executor(VirtualThreads.newThreadPerTaskExecutor("webhook-http"));
+        }
+        this.httpClient = httpClientBuilder.build();
+        this.maxInFlight = Math.max(1, appConfig.getWebhookWorkerConcurrency());
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+    
+    // Reserve a global in-flight slot before claiming a job
+    public boolean reserve(long timeoutMs) throws InterruptedException {
+        return inFlight.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+    
+    public int reserveMore(int max) {
+        int reserved = 0;
+        while (reserved < max && inFlight.tryAcquire()) {
+            reserved++;
+        }
+        return reserved;
+    }
+    
+    public void release(int count) {
+        if (count > 0) {
+            inFlight.release(count);
+        }
+    }
+    
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+    
+    public int getInFlight() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+    
+    // Deliver using one previously reserved slot; onComplete receives the updated log once the attempt has finished
+    public void deliver(WebhookLog webhookLog, MerchantSnapshot merchant, Consumer<WebhookLog> onComplete) {
+        log.info("Delivering webhook: {}", webhookLog.getId());
+        
+        // Skip if webhook URL not configured
+        if (merchant.webhookUrl() == null || merchant.webhookUrl().isEmpty()) {
+            log.info("Webhook URL not configured for merchant {}, skipping", merchant.id());
+            webhookLog.setStatus("success");  // Mark as success to avoid retries
+            release(1);
+            onComplete.accept(webhookLog);
+            return;
+        }
+        
+        if (merchant.webhookBatching()) {
+            addToBatch(webhookLog, merchant, onComplete);
+            return;
+        }
+        
+        send(List.of(webhookLog), merchant, false, onComplete);
+    }
+    
+    // Events for a batching merchant are held (with their slots) until the window ends or the batch is full
+    private void addToBatch(WebhookLog webhookLog, MerchantSnapshot merchant, Consumer<WebhookLog> onComplete) {
+        AtomicReference<PendingBatch> full = new AtomicReference<>();
+        pendingBatches.compute(merchant.id(), (merchantId, batch) -> {
+            if (batch == null) {
+                batch = new PendingBatch(merchant, onComplete);
+                PendingBatch created = batch;
+                batchTimer.schedule(() -> flushBatch(created), appConfig.getWebhookBatchWindowMs(), TimeUnit.MILLISECONDS);
+            }
+            batch.webhookLogs.add(webhookLog);
+            if (batch.webhookLogs.size() >= appConfig.getWebhookBatchMaxSize()) {
+                full.set(batch);
+                return null;
+            }
+            return batch;
+        });
+        if (full.get() != null) {
+            send(full.get().webhookLogs, full.get().merchant, true, full.get().onComplete);
+        }
+    }
+    
+    private void flushBatch(PendingBatch batch) {
+        // A batch that already filled up was sent by the thread that completed it
+        if (pendingBatches.remove(batch.merchant.id(), batch)) {
+            send(batch.webhookLogs, batch.merchant, true, batch.onComplete);
+        }
+    }
+    
+    // Send one or more events in a single POST; each event holds one reserved slot until the request completes
+    private void send(List<WebhookLog> webhookLogs, MerchantSnapshot merchant, boolean batched, Consumer<WebhookLog> onComplete) {
+        int slots = webhookLogs.size();
+        
+        URI uri;
+        try {
+            uri = URI.create(merchant.webhookUrl());
+        } catch (IllegalArgumentException e) {
+            release(slots);
+            for (WebhookLog webhookLog : webhookLogs) {
+                recordAttempt(webhookLog);
+                recordFailure(webhookLog, e);
+                onComplete.accept(webhookLog);
+            }
+            return;
+        }
+        
+        Semaphore hostPermits = inFlightPerHost.computeIfAbsent(String.valueOf(uri.getAuthority()),
+                host -> new Semaphore(appConfig.getWebhookMaxInFlightPerHost()));
+        if (!hostPermits.tryAcquire()) {
+            // Host is saturated: try again shortly without counting an attempt
+            webhookLogs.forEach(webhookLog -> park(webhookLog, appConfig.getWebhookHostBusyRetryMs()));
+            return;
+        }
+        
+        // Merchant bulkhead full or circuit open: park the delivery until it may be tried again
+        MerchantCircuitBreakers.Permit permit = circuitBreakers.tryAcquire(merchant.id());
+        if (!permit.allowed()) {
+            hostPermits.release();
+            webhookLogs.forEach(webhookLog -> park(webhookLog, permit.retryAfterMs()));
+            return;
+        }
+        
+        webhookLogs.forEach(this::recordAttempt);
+        
+        HttpRequest request;
+        try {
+            // Payloads are stored serialized; a batch is sent as a JSON array of the individual payloads
+            byte[] body = batched ? toJsonArray(webhookLogs) : webhookLogs.get(0).getPayload();
+            // Sign exactly the bytes that are sent
+            String signature = webhookSigner.sign(merchant.id(), merchant.webhookSecret(), body);
+            
+            HttpRequest.Builder builder = HttpRequest.newBuilder()
+                    .uri(uri)
+                    .timeout(Duration.ofMillis(appConfig.getWebhookTimeoutMs()))
+                    .header("Content-Type", "application/json")
+                    .header("X-Webhook-Signature", signature);
+            if (batched) {
+                builder.header("X-Webhook-Batch-Size", String.valueOf(webhookLogs.size()));
+            }
+            request = builder.POST(HttpRequest.BodyPublishers.ofByteArray(body)).build();
+        } catch (Exception e) {
+            circuitBreakers.cancel(merchant.id());
+            hostPermits.release();
+            release(slots);
+            for (WebhookLog webhookLog : webhookLogs) {
+                recordFailure(webhookLog, e);
+                onComplete.accept(webhookLog);
+            }
+            return;
+        }
+        
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .whenComplete((response, error) -> {
+                    boolean delivered = error == null && response.statusCode() >= 200 && response.statusCode() < 300;
+                    circuitBreakers.onResult(merchant.id(), delivered);
+                    hostPermits.release();
+                    release(slots);
+                    for (WebhookLog webhookLog : webhookLogs) {
+                        try {
+                            if (error != null) {
+                                recordFailure(webhookLog, error instanceof CompletionException && error.getCause() != null
+                                        ? error.getCause() : error);
+                            } else {
+                                recordResponse(webhookLog, response);
+                            }
+                        } catch (Exception e) {
+                            log.error("Failed to record webhook {} result", webhookLog.getId(), e);
+                        }
+                        onComplete.accept(webhookLog);
+                    }
+                });
+    }
+    
+    // Send whatever is still waiting in batch windows
+    public void flushPendingBatches() {
+        for (PendingBatch batch : List.copyOf(pendingBatches.values())) {
+            flushBatch(batch);
+        }
+    }
+    
+    // Wait for in-flight requests to finish during shutdown
+    public void awaitIdle(long timeoutMs) {
+        flushPendingBatches();
+        batchTimer.shutdownNow();
+        try {
+            if (inFlight.tryAcquire(maxInFlight, timeoutMs, TimeUnit.MILLISECONDS)) {
+                inFlight.release(maxInFlight);
+            } else {
+                log.warn("{} webhook deliveries still in flight at shutdown", getInFlight());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void park(WebhookLog webhookLog, long delayMs) {
+        release(1);
+        jobQueueService.scheduleWebhookJob(webhookLog.getId(), delayMs);
+        jobQueueService.ack(JobQueueService.WEBHOOK_QUEUE, new DeliverWebhookJob(webhookLog.getId()));
+    }
+    
+    private static byte[] toJsonArray(List<WebhookLog> webhookLogs) {
+        int length = webhookLogs.size() + 1;
+        for (WebhookLog webhookLog : webhookLogs) {
+            length += webhookLog.getPayload().length;
+        }
+        byte[] body = new byte[length];
+        int offset = 0;
+        for (WebhookLog webhookLog : webhookLogs) {
+            body[offset] = (byte) (offset == 0 ? '[' : ',');
+            offset++;
+            byte[] payload = webhookLog.getPayload();
+            System.arraycopy(payload, 0, body, offset, payload.length);
+            offset += payload.length;
+        }
+        body[offset] = ']';
+        return body;
+    }
+    
+    private void recordAttempt(WebhookLog webhookLog) {
+        // Increment attempt counter
+        webhookLog.setAttempts(webhookLog.getAttempts() + 1);
+        webhookLog.setLastAttemptAt(LocalDateTime.now());
+    }
+    
+    private void recordResponse(WebhookLog webhookLog, HttpResponse<String> response) {
+        webhookLog.setResponseCode(response.statusCode());
+        webhookLog.setResponseBody(response.body());
+        
+        // Check if successful
+        if (response.statusCode() >= 200 && response.statusCode() < 300) {
+            webhookLog.setStatus("success");
+            log.info("Webhook {} delivered successfully", webhookLog.getId());
+        } else {
+            handleFailedDelivery(webhookLog);
+        }
+    }
+    
+    private void recordFailure(WebhookLog webhookLog, Throwable error) {
+        log.error("Failed to deliver webhook: {}", webhookLog.getId(), error);
+        webhookLog.setResponseBody(error.getMessage());
+        handleFailedDelivery(webhookLog);
+    }
+    
+    private void handleFailedDelivery(WebhookLog webhookLog) {
+        if (webhookLog.getAttempts() >= 5) {
+            // Max attempts reached, mark as permanently failed
+            webhookLog.setStatus("failed");
+            log.warn("Webhook {} failed after {} attempts", webhookLog.getId(), webhookLog.getAttempts());
+        } else {
+            // Retry later; the job is scheduled by the caller once this result has been saved
+            webhookLog.setStatus("pending");
+            long retryDelayMs = webhookService.getRetryDelay(webhookLog.getAttempts() + 1);
+            webhookLog.setNextRetryAt(LocalDateTime.now().plus(Duration.ofMillis(retryDelayMs)));
+        }
+    }
+}
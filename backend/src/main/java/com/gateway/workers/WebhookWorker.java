@@ -1,66 +1,83 @@
 package com.gateway.workers;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.gateway.config.AppConfig;
 import com.gateway.jobs.DeliverWebhookJob;
-import com.gateway.model.Merchant;
 import com.gateway.model.WebhookLog;
-import com.gateway.repository.MerchantRepository;
 import com.gateway.repository.WebhookLogRepository;
 import com.gateway.service.JobQueueService;
-import com.gateway.service.WebhookService;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.redisson.api.RBlockingQueue;
-import org.redisson.api.RedissonClient;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Component
+@Profile("!api")
 @RequiredArgsConstructor
 @Slf4j
 public class WebhookWorker {
     
-    private final RedissonClient redissonClient;
     private final WebhookLogRepository webhookLogRepository;
-    private final MerchantRepository merchantRepository;
-    private final WebhookService webhookService;
+    private final MerchantSnapshotCache merchantSnapshotCache;
     private final JobQueueService jobQueueService;
-    private final ObjectMapper objectMapper;
+    private final WebhookDeliveryEngine deliveryEngine;
     private final AppConfig appConfig;
     
-    private static final String WEBHOOK_QUEUE = "webhook-jobs";
-    private static final HttpClient httpClient = HttpClient.newBuilder()
-            .connectTimeout(Duration.ofSeconds(5))
-            .build();
     private volatile boolean running = true;
+    private BatchFlusher<WebhookLog> completions;
     
     @EventListener(ApplicationReadyEvent.class)
     public void start() {
-        Thread workerThread = new Thread(this::processJobs, "webhook-worker");
+        completions = new BatchFlusher<>("webhook-worker-flusher", appConfig.getWorkerBatchSize(),
+                appConfig.getWorkerFlushIntervalMs(), this::flushDeliveryResults);
+        completions.start();
+        Thread workerThread = new Thread(this::processJobs, "webhook-worker-poller");
         workerThread.setDaemon(false);
         workerThread.start();
-        log.info("Webhook worker started");
+        log.info("Webhook worker started with up to {} deliveries in flight", deliveryEngine.getMaxInFlight());
+    }
+    
+    @PreDestroy
+    public void stop() {
+        running = false;
+        deliveryEngine.awaitIdle(appConfig.getWorkerShutdownTimeoutMs());
+        if (completions != null) {
+            completions.stop(appConfig.getWorkerShutdownTimeoutMs());
+        }
     }
     
     private void processJobs() {
-        RBlockingQueue<DeliverWebhookJob> queue = redissonClient.getBlockingQueue(WEBHOOK_QUEUE);
-        
         while (running) {
             try {
-                DeliverWebhookJob job = queue.poll(5, TimeUnit.SECONDS);
+                // Back off while every in-flight slot is busy; the job stays in Redis for other nodes
+                if (!deliveryEngine.reserve(appConfig.getWorkerBackoffMs())) {
+                    continue;
+                }
+                int slots = 1 + deliveryEngine.reserveMore(appConfig.getWorkerBatchSize() - 1);
                 
-                if (job != null) {
-                    deliverWebhook(job);
+                List<DeliverWebhookJob> jobs;
+                try {
+                    jobs = jobQueueService.claimBatch(JobQueueService.WEBHOOK_QUEUE, slots, 5, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    deliveryEngine.release(slots);
+                    throw e;
+                }
+                deliveryEngine.release(slots - jobs.size());
+                
+                if (!jobs.isEmpty()) {
+                    dispatch(jobs);
                 }
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
@@ -71,106 +88,67 @@ public class WebhookWorker {
         }
     }
     
-    private void deliverWebhook(DeliverWebhookJob job) {
+    private void dispatch(List<DeliverWebhookJob> jobs) {
+        // Load webhook logs with one query; merchants mostly come from the snapshot cache
+        Map<UUID, WebhookLog> webhookLogs;
+        Map<UUID, MerchantSnapshot> merchants;
         try {
-            log.info("Delivering webhook: {}", job.getWebhookLogId());
-            
-            // Small delay to ensure transaction is committed
-            Thread.sleep(100);
-            
-            // Fetch webhook log
-            WebhookLog webhookLog = webhookLogRepository.findById(job.getWebhookLogId())
-                    .orElseThrow(() -> new RuntimeException("Webhook log not found"));
-            
-            // Fetch merchant
-            Merchant merchant = merchantRepository.findById(webhookLog.getMerchantId())
-                    .orElseThrow(() -> new RuntimeException("Merchant not found"));
-            
-            // Skip if webhook URL not configured
-            if (merchant.getWebhookUrl() == null || merchant.getWebhookUrl().isEmpty()) {
-                log.info("Webhook URL not configured for merchant {}, skipping", merchant.getId());
-                webhookLog.setStatus("success");  // Mark as success to avoid retries
-                webhookLogRepository.save(webhookLog);
-                return;
+            Set<UUID> webhookLogIds = jobs.stream().map(DeliverWebhookJob::getWebhookLogId).collect(Collectors.toSet());
+            webhookLogs = webhookLogRepository.findAllById(webhookLogIds).stream()
+                    .collect(Collectors.toMap(WebhookLog::getId, Function.identity()));
+            Set<UUID> merchantIds = webhookLogs.values().stream().map(WebhookLog::getMerchantId).collect(Collectors.toSet());
+            merchants = merchantSnapshotCache.getAll(merchantIds);
+        } catch (Exception e) {
+            log.error("Failed to load batch of {} webhooks", jobs.size(), e);
+            deliveryEngine.release(jobs.size());
+            jobs.forEach(job -> jobQueueService.requeue(JobQueueService.WEBHOOK_QUEUE, job));
+            return;
+        }
+        
+        for (DeliverWebhookJob job : jobs) {
+            WebhookLog webhookLog = webhookLogs.get(job.getWebhookLogId());
+            MerchantSnapshot merchant = webhookLog != null ? merchants.get(webhookLog.getMerchantId()) : null;
+            if (webhookLog == null || merchant == null) {
+                log.error("Webhook log {} or its merchant not found", job.getWebhookLogId());
+                skip(job);
+                continue;
             }
             
-            // Increment attempt counter
-            webhookLog.setAttempts(webhookLog.getAttempts() + 1);
-            webhookLog.setLastAttemptAt(LocalDateTime.now());
-            
-            // Generate payload and signature
-            String payloadString = objectMapper.writeValueAsString(webhookLog.getPayload());
-            String signature = webhookService.generateSignature(payloadString, merchant.getWebhookSecret());
-            
-            // Send HTTP request
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(merchant.getWebhookUrl()))
-                    .timeout(Duration.ofSeconds(5))
-                    .header("Content-Type", "application/json")
-                    .header("X-Webhook-Signature", signature)
-                    .POST(HttpRequest.BodyPublishers.ofString(payloadString))
-                    .build();
-            
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-            
-            webhookLog.setResponseCode(response.statusCode());
-            webhookLog.setResponseBody(response.body());
-            
-            // Check if successful
-            if (response.statusCode() >= 200 && response.statusCode() < 300) {
-                webhookLog.setStatus("success");
-                log.info("Webhook {} delivered successfully", webhookLog.getId());
-            } else {
-                handleFailedDelivery(webhookLog);
+            // A re-delivered job may already have been delivered by a consumer that died before acking
+            if (!"pending".equals(webhookLog.getStatus())) {
+                log.info("Webhook {} already {}, skipping", webhookLog.getId(), webhookLog.getStatus());
+                skip(job);
+                continue;
             }
             
-            webhookLogRepository.save(webhookLog);
-            
-        } catch (Exception e) {
-            log.error("Failed to deliver webhook: {}", job.getWebhookLogId(), e);
-            
-            // Update webhook log on exception
-            try {
-                WebhookLog webhookLog = webhookLogRepository.findById(job.getWebhookLogId())
-                        .orElse(null);
-                if (webhookLog != null) {
-                    webhookLog.setAttempts(webhookLog.getAttempts() + 1);
-                    webhookLog.setLastAttemptAt(LocalDateTime.now());
-                    webhookLog.setResponseBody(e.getMessage());
-                    handleFailedDelivery(webhookLog);
-                    webhookLogRepository.save(webhookLog);
-                }
-            } catch (Exception ex) {
-                log.error("Failed to update webhook log after error", ex);
-            }
+            deliveryEngine.deliver(webhookLog, merchant, completions::add);
         }
     }
     
-    private void handleFailedDelivery(WebhookLog webhookLog) {
-        if (webhookLog.getAttempts() >= 5) {
-            // Max attempts reached, mark as permanently failed
-            webhookLog.setStatus("failed");
-            log.warn("Webhook {} failed after {} attempts", webhookLog.getId(), webhookLog.getAttempts());
-        } else {
-            // Schedule retry
-            webhookLog.setStatus("pending");
-            long retryDelayMs = webhookService.getRetryDelay(webhookLog.getAttempts() + 1);
-            LocalDateTime nextRetry = LocalDateTime.now().plus(Duration.ofMillis(retryDelayMs));
-            webhookLog.setNextRetryAt(nextRetry);
-            
-            // Enqueue for retry after delay
-            Thread retryScheduler = new Thread(() -> {
-                try {
-                    Thread.sleep(retryDelayMs);
-                    jobQueueService.enqueueWebhookJob(webhookLog.getId());
-                    log.info("Scheduled retry for webhook {} (attempt {})", 
-                            webhookLog.getId(), webhookLog.getAttempts() + 1);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                }
-            });
-            retryScheduler.setDaemon(true);
-            retryScheduler.start();
+    private void skip(DeliverWebhookJob job) {
+        deliveryEngine.release(1);
+        jobQueueService.ack(JobQueueService.WEBHOOK_QUEUE, job);
+    }
+    
+    void flushDeliveryResults(List<WebhookLog> webhookLogs) {
+        try {
+            webhookLogRepository.batchUpdateDelivery(webhookLogs);
+        } catch (Exception e) {
+            // The logs are still pending in the database, so the jobs are delivered again
+            log.error("Failed to persist batch of {} webhook results, re-queueing", webhookLogs.size(), e);
+            webhookLogs.forEach(webhookLog -> jobQueueService.requeue(JobQueueService.WEBHOOK_QUEUE,
+                    new DeliverWebhookJob(webhookLog.getId())));
+            return;
+        }
+        
+        LocalDateTime now = LocalDateTime.now();
+        for (WebhookLog webhookLog : webhookLogs) {
+            // Retries are scheduled only now, so a retry never runs against a result that was not saved
+            if ("pending".equals(webhookLog.getStatus()) && webhookLog.getNextRetryAt() != null) {
+                long delayMs = Math.max(0, Duration.between(now, webhookLog.getNextRetryAt()).toMillis());
+                jobQueueService.scheduleWebhookJob(webhookLog.getId(), delayMs);
+            }
+            jobQueueService.ack(JobQueueService.WEBHOOK_QUEUE, new DeliverWebhookJob(webhookLog.getId()));
         }
     }
 }
@@ -0,0 +1,107 @@
+package com.gateway.workers;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed-size pool that runs queue jobs for one worker. A job may only be
+ * dequeued once a slot has been reserved, so a saturated pool leaves jobs
+ * in Redis for other nodes instead of buffering them in memory.
+ */
+@Slf4j
+public class WorkerPool {
+    
+    private final String name;
+    private final int concurrency;
+    private final Semaphore slots;
+    private final ExecutorService executor;
+    
+    public WorkerPool(String name, int concurrency, boolean virtualThreads) {
+        this.name = name;
+        this.concurrency = Math.max(1, concurrency);
+        this.slots = new Semaphore(this.concurrency);
+        // The slots already bound concurrency, so virtual threads need no pool of their own
+        this.executor = virtualThreads
+                ? VirtualThreads.newThreadPerTaskExecutor(name)
+                : Executors.newFixedThreadPool(this.concurrency, threadFactory(name));
+    }
+    
+    // Reserve a slot before dequeuing; waits up to the back-off period when the pool is full
+    public boolean reserve(long backoffMs) throws InterruptedException {
+        return slots.tryAcquire(backoffMs, TimeUnit.MILLISECONDS);
+    }
+    
+    // Opportunistically reserve up to max more slots without waiting, for batch dequeues
+    public int reserveMore(int max) {
+        int reserved = 0;
+        while (reserved < max && slots.tryAcquire()) {
+            reserved++;
+        }
+        return reserved;
+    }
+    
+    public void release(int count) {
+        if (count > 0) {
+            slots.release(count);
+        }
+    }
+    
+    // Give back a reserved slot that was not used (e.g. the queue poll timed out)
+    public void release() {
+        slots.release();
+    }
+    
+    // Run a job in a previously reserved slot; the slot is freed when the job finishes
+    public void submit(Runnable job) {
+        try {
+            executor.execute(() -> {
+                try {
+                    job.run();
+                } catch (Exception e) {
+                    log.error("Unhandled error in {} job", name, e);
+                } finally {
+                    slots.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            slots.release();
+            throw e;
+        }
+    }
+    
+    public int getConcurrency() {
+        return concurrency;
+    }
+    
+    public int getActiveJobs() {
+        return concurrency - slots.availablePermits();
+    }
+    
+    public void shutdown(long timeoutMs) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS)) {
+                log.warn("{} pool did not finish {} in-flight jobs before shutdown", name, getActiveJobs());
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private static ThreadFactory threadFactory(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(false);
+            return thread;
+        };
+    }
+}
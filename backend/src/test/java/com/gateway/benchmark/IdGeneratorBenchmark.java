@@ -0,0 +1,116 @@
+package com.gateway.benchmark;
+
+import com.gateway.service.IdGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * ID generation cost: the previous shared SecureRandom drawing one character at a time against
+ * IdGenerator, run with several threads as request handlers do. The *OnNewThread cases generate each ID
+ * on a thread of its own, virtual on Java 21+, as in virtual-thread mode; newThreadOnly is the cost of
+ * the thread alone, and perThreadDrbgOnNewThread is a generator kept per thread, seeded for every ID.
+ * newDrbgPerId is that seeding cost without the thread, which dominates once threads are virtual.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class IdGeneratorBenchmark {
+    
+    private static final String ALPHANUMERIC = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+    private static final SecureRandom SHARED_RANDOM = new SecureRandom();
+    private static final ThreadLocal<SecureRandom> PER_THREAD_DRBG = ThreadLocal.withInitial(() -> {
+        try {
+            return SecureRandom.getInstance("DRBG");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+    private static final MethodHandle START_VIRTUAL_THREAD = lookupStartVirtualThread();
+    
+    private final IdGenerator idGenerator = new IdGenerator();
+    
+    @Benchmark
+    public String sharedRandomPerCharacter() {
+        StringBuilder sb = new StringBuilder("pay_");
+        for (int i = 0; i < 16; i++) {
+            sb.append(ALPHANUMERIC.charAt(SHARED_RANDOM.nextInt(ALPHANUMERIC.length())));
+        }
+        return sb.toString();
+    }
+    
+    @Benchmark
+    public String idGenerator() {
+        return idGenerator.generate("pay_");
+    }
+    
+    @Benchmark
+    public String newDrbgPerId() throws Exception {
+        byte[] bytes = new byte[16];
+        SecureRandom.getInstance("DRBG").nextBytes(bytes);
+        return "pay_" + bytes[0];
+    }
+    
+    @Benchmark
+    public String newThreadOnly() throws Throwable {
+        return onNewThread(() -> "pay_");
+    }
+    
+    @Benchmark
+    public String perThreadDrbgOnNewThread() throws Throwable {
+        return onNewThread(() -> {
+            byte[] bytes = new byte[16];
+            PER_THREAD_DRBG.get().nextBytes(bytes);
+            return "pay_" + bytes[0];
+        });
+    }
+    
+    @Benchmark
+    public String idGeneratorOnNewThread() throws Throwable {
+        return onNewThread(() -> idGenerator.generate("pay_"));
+    }
+    
+    private static String onNewThread(Supplier<String> task) throws Throwable {
+        AtomicReference<String> result = new AtomicReference<>();
+        Runnable runnable = () -> result.set(task.get());
+        Thread thread;
+        if (START_VIRTUAL_THREAD != null) {
+            thread = (Thread) START_VIRTUAL_THREAD.invoke(runnable);
+        } else {
+            thread = new Thread(runnable);
+            thread.start();
+        }
+        thread.join();
+        return result.get();
+    }
+    
+    // Thread.startVirtualThread on Java 21+, so the benchmark still builds and runs on Java 17
+    private static MethodHandle lookupStartVirtualThread() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Thread.class, "startVirtualThread",
+                    MethodType.methodType(Thread.class, Runnable.class));
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.gateway.benchmark;
+
+import com.gateway.model.Order;
+import com.gateway.model.Payment;
+import com.gateway.model.WebhookLog;
+import com.gateway.service.IdGenerator;
+import com.gateway.service.MerchantChangeNotifier;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.orm.hibernate5.SpringBeanContainer;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Insert cost for order, payment and webhook creation: the previous saveAndFlush path, which merged
+ * assigned-id entities (a SELECT before each INSERT) and flushed every row on its own, against save()
+ * persisting and flushing once at commit with JDBC batching. Each operation is one transaction of
+ * {@code rows} inserts, so inserts per second are the score times {@code rows}.
+ * <p>
+ * Needs a Postgres with init.sql applied, e.g. {@code docker-compose up -d postgres}; set
+ * BENCHMARK_DATABASE_URL to use another one. Rows are written for a merchant created for the run and
+ * deleted afterwards.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PersistenceBenchmark {
+    
+    private static final String DEFAULT_URL =
+            "jdbc:postgresql://localhost:5432/payment_gateway?user=gateway_user&password=gateway_pass";
+    private static final byte[] PAYLOAD = "{\"event\":\"payment.success\",\"data\":{}}".getBytes(StandardCharsets.UTF_8);
+    
+    // 1: a single create request; 50: a batch order create or a worker flush, at the configured batch size
+    @Param({"1", "50"})
+    private int rows;
+    
+    private final IdGenerator idGenerator = new IdGenerator();
+    private HikariDataSource dataSource;
+    private EntityManagerFactory entityManagerFactory;
+    private UUID merchantId;
+    private String orderId;
+    
+    @Setup
+    public void setUp() throws Exception {
+        String url = System.getenv().getOrDefault("BENCHMARK_DATABASE_URL", DEFAULT_URL);
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(url);
+        dataSource.setMaximumPoolSize(2);
+        dataSource.addDataSourceProperty("reWriteBatchedInserts", "true");
+        
+        // Merchant's entity listener is resolved from this factory; it is never triggered here
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("merchantChangeNotifier", mock(MerchantChangeNotifier.class));
+        
+        // Same Hibernate settings as application.properties
+        LocalContainerEntityManagerFactoryBean factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setPackagesToScan("com.gateway.model");
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setJpaPropertyMap(Map.of(
+                AvailableSettings.STATEMENT_BATCH_SIZE, "50",
+                AvailableSettings.ORDER_INSERTS, "true",
+                AvailableSettings.ORDER_UPDATES, "true",
+                AvailableSettings.BEAN_CONTAINER, new SpringBeanContainer(beanFactory)));
+        factoryBean.afterPropertiesSet();
+        entityManagerFactory = factoryBean.getObject();
+        
+        merchantId = UUID.randomUUID();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement insert = connection.prepareStatement(
+                     "INSERT INTO merchants (id, name, email, api_key, api_secret) VALUES (?, ?, ?, ?, ?)")) {
+            insert.setObject(1, merchantId);
+            insert.setString(2, "Benchmark Merchant");
+            insert.setString(3, "benchmark-" + merchantId + "@example.com");
+            insert.setString(4, "key_bench_" + merchantId);
+            insert.setString(5, "secret_bench");
+            insert.executeUpdate();
+        }
+        
+        // Payments need an existing order
+        Order order = newOrder();
+        inTransaction(em -> em.persist(order));
+        orderId = order.getId();
+    }
+    
+    @TearDown
+    public void tearDown() throws Exception {
+        entityManagerFactory.close();
+        try (Connection connection = dataSource.getConnection()) {
+            for (String table : new String[]{"webhook_logs", "payments", "orders", "merchants"}) {
+                String column = table.equals("merchants") ? "id" : "merchant_id";
+                try (PreparedStatement delete = connection.prepareStatement(
+                        "DELETE FROM " + table + " WHERE " + column + " = ?")) {
+                    delete.setObject(1, merchantId);
+                    delete.executeUpdate();
+                }
+            }
+        }
+        dataSource.close();
+    }
+    
+    @Benchmark
+    public void ordersMergeAndFlush() {
+        inTransaction(em -> {
+            for (int i = 0; i < rows; i++) {
+                em.merge(newOrder());
+                em.flush();
+            }
+        });
+    }
+    
+    @Benchmark
+    public void ordersPersist() {
+        inTransaction(em -> {
+            for (int i = 0; i < rows; i++) {
+                em.persist(newOrder());
+            }
+        });
+    }
+    
+    @Benchmark
+    public void paymentsMergeAndFlush() {
+        inTransaction(em -> {
+            for (int i = 0; i < rows; i++) {
+                em.merge(newPayment());
+                em.flush();
+            }
+        });
+    }
+    
+    @Benchmark
+    public void paymentsPersist() {
+        inTransaction(em -> {
+            for (int i = 0; i < rows; i++) {
+                em.persist(newPayment());
+            }
+        });
+    }
+    
+    // Webhook logs have generated ids, so they were always persisted; only the flush per row goes away
+    @Benchmark
+    public void webhooksPersistAndFlush() {
+        inTransaction(em -> {
+            for (int i = 0; i < rows; i++) {
+                em.persist(newWebhookLog());
+                em.flush();
+            }
+        });
+    }
+    
+    @Benchmark
+    public void webhooksPersist() {
+        inTransaction(em -> {
+            for (int i = 0; i < rows; i++) {
+                em.persist(newWebhookLog());
+            }
+        });
+    }
+    
+    private void inTransaction(Consumer<EntityManager> work) {
+        EntityManager em = entityManagerFactory.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            work.accept(em);
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+    }
+    
+    private Order newOrder() {
+        Order order = new Order();
+        order.setId(idGenerator.generate("order_"));
+        order.setMerchantId(merchantId);
+        order.setAmount(50000);
+        order.setCurrency("INR");
+        order.setStatus("created");
+        order.setCreatedAt(LocalDateTime.now());
+        return order;
+    }
+    
+    private Payment newPayment() {
+        LocalDateTime now = LocalDateTime.now();
+        Payment payment = new Payment();
+        payment.setId(idGenerator.generate("pay_"));
+        payment.setOrderId(orderId);
+        payment.setMerchantId(merchantId);
+        payment.setAmount(50000);
+        payment.setCurrency("INR");
+        payment.setMethod("upi");
+        payment.setVpa("user@paytm");
+        payment.setStatus("pending");
+        payment.setCaptured(false);
+        payment.setCreatedAt(now);
+        payment.setUpdatedAt(now);
+        return payment;
+    }
+    
+    private WebhookLog newWebhookLog() {
+        WebhookLog webhookLog = new WebhookLog();
+        webhookLog.setMerchantId(merchantId);
+        webhookLog.setEvent("payment.success");
+        webhookLog.setPayload(PAYLOAD);
+        webhookLog.setStatus("pending");
+        webhookLog.setAttempts(0);
+        return webhookLog;
+    }
+}
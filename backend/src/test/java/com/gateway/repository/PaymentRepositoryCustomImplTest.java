@@ -0,0 +1,46 @@
+package com.gateway.repository;
+
+import com.gateway.model.Payment;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Statement;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentRepositoryCustomImplTest {
+    
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    
+    @Test
+    void batchUpdateStatusReturnsOnlyUpdatedPayments() {
+        Payment updated = payment("pay_1");
+        Payment alreadyFinal = payment("pay_2");
+        Payment noInfo = payment("pay_3");
+        when(jdbcTemplate.batchUpdate(contains("AND status = 'pending'"), anyList(), anyInt(), any()))
+                .thenReturn(new int[][] {{1, 0, Statement.SUCCESS_NO_INFO}});
+        
+        List<Payment> result = new PaymentRepositoryCustomImpl(jdbcTemplate)
+                .batchUpdateStatus(List.of(updated, alreadyFinal, noInfo));
+        
+        assertThat(result).containsExactly(updated, noInfo);
+    }
+    
+    private Payment payment(String id) {
+        Payment payment = new Payment();
+        payment.setId(id);
+        payment.setStatus("success");
+        return payment;
+    }
+}
@@ -0,0 +1,48 @@
+package com.gateway.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdGeneratorTest {
+    
+    private final IdGenerator idGenerator = new IdGenerator();
+    
+    @Test
+    void keepsPrefixedSixteenCharacterFormat() {
+        assertThat(idGenerator.generate("pay_")).matches("^pay_[0-9a-z]{2}[A-Za-z0-9]{14}$");
+    }
+    
+    @Test
+    void startsWithCurrentMinuteBucket() {
+        String before = bucket(System.currentTimeMillis());
+        String id = idGenerator.generate("order_").substring("order_".length());
+        String after = bucket(System.currentTimeMillis());
+        
+        assertThat(id.substring(0, 2)).isIn(before, after);
+    }
+    
+    @Test
+    void randomPartUsesWholeAlphabetWithoutCollisions() {
+        Set<String> ids = new HashSet<>();
+        Set<Character> characters = new HashSet<>();
+        for (int i = 0; i < 100000; i++) {
+            String id = idGenerator.generate("pay_");
+            ids.add(id);
+            for (char c : id.substring(6).toCharArray()) {
+                characters.add(c);
+            }
+        }
+        
+        assertThat(ids).hasSize(100000);
+        assertThat(characters).hasSize(62);
+    }
+    
+    private static String bucket(long millis) {
+        String minute = Long.toString(millis / 60000 % (36 * 36), 36);
+        return minute.length() == 1 ? "0" + minute : minute;
+    }
+}
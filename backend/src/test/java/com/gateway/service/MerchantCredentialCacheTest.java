@@ -0,0 +1,80 @@
+package com.gateway.service;
+
+import com.gateway.config.AppConfig;
+import com.gateway.model.Merchant;
+import com.gateway.repository.MerchantRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MerchantCredentialCacheTest {
+    
+    @Mock
+    private MerchantRepository merchantRepository;
+    
+    @Mock
+    private MerchantChangeNotifier merchantChangeNotifier;
+    
+    @Mock
+    private AppConfig appConfig;
+    
+    private MerchantCredentialCache cache;
+    private Merchant merchant;
+    
+    @BeforeEach
+    void setUp() {
+        cache = new MerchantCredentialCache(merchantRepository, merchantChangeNotifier, new SimpleMeterRegistry(), appConfig);
+        cache.init();
+        merchant = new Merchant();
+        merchant.setId(UUID.randomUUID());
+        merchant.setApiKey("key_test");
+        merchant.setApiSecret("secret_test");
+        merchant.setWebhookUrl("https://merchant.example/webhook");
+        
+        when(appConfig.getAuthCacheTtlMs()).thenReturn(60000L);
+        when(appConfig.getAuthCacheMaxSize()).thenReturn(100);
+        when(merchantRepository.findByApiKey("key_test")).thenReturn(Optional.of(merchant));
+    }
+    
+    @Test
+    void secondAuthenticationIsServedFromCache() {
+        assertThat(cache.authenticate("key_test", "secret_test")).isPresent();
+        assertThat(cache.authenticate("key_test", "secret_test")).isPresent();
+        assertThat(cache.authenticate("key_test", "wrong")).isEmpty();
+        
+        verify(merchantRepository, times(1)).findByApiKey("key_test");
+    }
+    
+    @Test
+    void changesToReturnedMerchantDoNotReachCache() {
+        Merchant first = cache.authenticate("key_test", "secret_test").orElseThrow();
+        first.setWebhookUrl("https://attacker.example/webhook");
+        merchant.setWebhookUrl("https://changed.example/webhook");
+        
+        Merchant second = cache.authenticate("key_test", "secret_test").orElseThrow();
+        
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getWebhookUrl()).isEqualTo("https://merchant.example/webhook");
+    }
+    
+    @Test
+    void evictedMerchantIsReadAgain() {
+        cache.authenticate("key_test", "secret_test");
+        cache.evict(merchant.getId());
+        cache.authenticate("key_test", "secret_test");
+        
+        verify(merchantRepository, times(2)).findByApiKey("key_test");
+    }
+}
@@ -0,0 +1,95 @@
+package com.gateway.service;
+
+import com.gateway.config.AppConfig;
+import com.gateway.dto.BatchOrderResult;
+import com.gateway.dto.CreateOrderRequest;
+import com.gateway.dto.OrderResponse;
+import com.gateway.model.Merchant;
+import com.gateway.model.Order;
+import com.gateway.repository.OrderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OrderServiceTest {
+    
+    @Mock
+    private OrderRepository orderRepository;
+    
+    @Mock
+    private AppConfig appConfig;
+    
+    private OrderService orderService;
+    private Merchant merchant;
+    
+    @BeforeEach
+    void setUp() {
+        orderService = new OrderService(orderRepository, appConfig, new IdGenerator());
+        merchant = new Merchant();
+        merchant.setId(UUID.randomUUID());
+    }
+    
+    // save() no longer flushes, so the response must not depend on anything filled in at insert time
+    @Test
+    void createOrderBuildsResponseBeforeFlush() {
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        
+        OrderResponse response = orderService.createOrder(merchant, new CreateOrderRequest(50000, "INR", "r-1"));
+        
+        assertThat(response.getId()).startsWith("order_");
+        assertThat(response.getMerchantId()).isEqualTo(merchant.getId().toString());
+        assertThat(response.getStatus()).isEqualTo("created");
+        assertThat(response.getCreatedAt()).isNotNull();
+        
+        ArgumentCaptor<Order> saved = ArgumentCaptor.forClass(Order.class);
+        verify(orderRepository).save(saved.capture());
+        assertThat(saved.getValue().isNew()).isTrue();
+    }
+    
+    // Single creates share the batch validation; short currencies used to be stored as sent
+    @Test
+    void createOrderRejectsInvalidCurrencyAndReceipt() {
+        assertThatThrownBy(() -> orderService.createOrder(merchant, new CreateOrderRequest(100, "US", null)))
+                .hasMessage("Invalid currency");
+        assertThatThrownBy(() -> orderService.createOrder(merchant, new CreateOrderRequest(100, "", null)))
+                .hasMessage("Invalid currency");
+        assertThatThrownBy(() -> orderService.createOrder(merchant, new CreateOrderRequest(100, "INR", "r".repeat(256))))
+                .hasMessage("Receipt too long");
+        
+        verify(orderRepository, never()).save(any(Order.class));
+    }
+    
+    @Test
+    void createOrdersReportsInvalidItemsAndCreatesTheRest() {
+        when(appConfig.getOrderBatchMaxSize()).thenReturn(10);
+        when(orderRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        
+        List<BatchOrderResult> results = orderService.createOrders(merchant, List.of(
+                new CreateOrderRequest(100, "INR", null),
+                new CreateOrderRequest(0, "INR", null),
+                new CreateOrderRequest(200, null, "r-2")));
+        
+        assertThat(results).hasSize(3);
+        assertThat(results.get(0).getOrder().getAmount()).isEqualTo(100);
+        assertThat(results.get(0).getOrder().getCreatedAt()).isNotNull();
+        assertThat(results.get(1).getOrder()).isNull();
+        assertThat(results.get(1).getError().getDescription()).isEqualTo("Invalid amount");
+        assertThat(results.get(2).getOrder().getCurrency()).isEqualTo("INR");
+        assertThat(results.get(2).getOrder().getCreatedAt()).isNotNull();
+    }
+}
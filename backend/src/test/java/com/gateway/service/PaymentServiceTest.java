@@ -0,0 +1,134 @@
+package com.gateway.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gateway.config.AppConfig;
+import com.gateway.dto.CheckoutRequest;
+import com.gateway.dto.CheckoutResponse;
+import com.gateway.dto.CreateOrderRequest;
+import com.gateway.dto.CreatePaymentRequest;
+import com.gateway.dto.PaymentResponse;
+import com.gateway.model.IdempotencyKey;
+import com.gateway.model.Merchant;
+import com.gateway.model.Order;
+import com.gateway.model.Payment;
+import com.gateway.repository.IdempotencyKeyRepository;
+import com.gateway.repository.MerchantRepository;
+import com.gateway.repository.OrderRepository;
+import com.gateway.repository.PaymentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentServiceTest {
+    
+    @Mock
+    private PaymentRepository paymentRepository;
+    
+    @Mock
+    private OrderRepository orderRepository;
+    
+    @Mock
+    private MerchantRepository merchantRepository;
+    
+    @Mock
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+    
+    @Mock
+    private JobQueueService jobQueueService;
+    
+    @Mock
+    private WebhookService webhookService;
+    
+    @Mock
+    private PaymentStatusNotifier paymentStatusNotifier;
+    
+    @Mock
+    private IdempotencyStore idempotencyStore;
+    
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    
+    @Mock
+    private AppConfig appConfig;
+    
+    private PaymentService paymentService;
+    private Merchant merchant;
+    
+    @BeforeEach
+    void setUp() {
+        IdGenerator idGenerator = new IdGenerator();
+        OrderService orderService = new OrderService(orderRepository, appConfig, idGenerator);
+        paymentService = new PaymentService(paymentRepository, orderRepository, orderService, merchantRepository,
+                idempotencyKeyRepository, jobQueueService, idGenerator, webhookService, paymentStatusNotifier,
+                idempotencyStore, new TransactionTemplate(transactionManager), new ObjectMapper(), appConfig);
+        merchant = new Merchant();
+        merchant.setId(UUID.randomUUID());
+    }
+    
+    @Test
+    void createPaymentBuildsResponseBeforeFlush() {
+        Order order = new Order();
+        order.setId("order_test");
+        order.setMerchantId(merchant.getId());
+        order.setAmount(50000);
+        order.setCurrency("INR");
+        order.setCreatedAt(LocalDateTime.now());
+        when(orderRepository.findByIdAndMerchantId("order_test", merchant.getId())).thenReturn(Optional.of(order));
+        when(paymentRepository.save(any(Payment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        
+        CreatePaymentRequest request = new CreatePaymentRequest();
+        request.setOrderId("order_test");
+        request.setMethod("upi");
+        request.setVpa("user@bank");
+        PaymentResponse response = paymentService.createPayment(merchant, request, null);
+        
+        assertThat(response.getId()).startsWith("pay_");
+        assertThat(response.getStatus()).isEqualTo("pending");
+        assertThat(response.getAmount()).isEqualTo(50000);
+        assertThat(response.getCreatedAt()).isNotNull();
+        assertThat(response.getUpdatedAt()).isEqualTo(response.getCreatedAt());
+        verify(jobQueueService).enqueuePaymentJob(response.getId());
+    }
+    
+    @Test
+    void checkoutStoresIdempotentResponseWithCreationTime() {
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(paymentRepository.save(any(Payment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(appConfig.getIdempotencyTtlMs()).thenReturn(86400000L);
+        
+        CreatePaymentRequest payment = new CreatePaymentRequest();
+        payment.setMethod("card");
+        payment.setCardNumber("4111111111111111");
+        payment.setCardExpiry("12/30");
+        payment.setCardCvv("123");
+        CheckoutResponse response = paymentService.checkout(merchant,
+                new CheckoutRequest(new CreateOrderRequest(2500, "INR", null), payment), "key-1");
+        
+        assertThat(response.getOrder().getCreatedAt()).isNotNull();
+        assertThat(response.getPayment().getOrderId()).isEqualTo(response.getOrder().getId());
+        assertThat(response.getPayment().getCreatedAt()).isNotNull();
+        
+        ArgumentCaptor<IdempotencyKey> stored = ArgumentCaptor.forClass(IdempotencyKey.class);
+        verify(idempotencyKeyRepository).save(stored.capture());
+        assertThat(stored.getValue().getKey()).isEqualTo("checkout:key-1");
+        assertThat(stored.getValue().getCreatedAt()).isNotNull();
+        assertThat(stored.getValue().getExpiresAt()).isAfter(stored.getValue().getCreatedAt());
+        verify(idempotencyStore).complete(eq(merchant.getId()), eq("checkout:key-1"), any(CheckoutResponse.class));
+    }
+}
@@ -0,0 +1,69 @@
+package com.gateway.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.listener.MessageListener;
+import org.redisson.client.codec.StringCodec;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PaymentStatusNotifierTest {
+    
+    private PaymentStatusNotifier notifier;
+    private MessageListener<String> listener;
+    
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        RedissonClient redissonClient = mock(RedissonClient.class);
+        RTopic topic = mock(RTopic.class);
+        when(redissonClient.getTopic("payment-status", StringCodec.INSTANCE)).thenReturn(topic);
+        notifier = new PaymentStatusNotifier(redissonClient);
+        notifier.subscribe();
+        
+        ArgumentCaptor<MessageListener<String>> captor = ArgumentCaptor.forClass(MessageListener.class);
+        verify(topic).addListener(eq(String.class), captor.capture());
+        listener = captor.getValue();
+    }
+    
+    @AfterEach
+    void tearDown() {
+        notifier.shutdown();
+    }
+    
+    @Test
+    void waitersRunOffTheListenerThread() throws Exception {
+        CompletableFuture<String> ranOn = new CompletableFuture<>();
+        notifier.addWaiter("pay_1", () -> ranOn.complete(Thread.currentThread().getName()));
+        
+        listener.onMessage("payment-status", "pay_0,pay_1");
+        
+        assertThat(ranOn.get(5, TimeUnit.SECONDS)).startsWith("payment-status-waiter-");
+    }
+    
+    @Test
+    void removedWaiterIsNotRun() throws Exception {
+        CompletableFuture<Void> removed = new CompletableFuture<>();
+        CompletableFuture<Void> kept = new CompletableFuture<>();
+        Runnable callback = () -> removed.complete(null);
+        notifier.addWaiter("pay_1", callback);
+        notifier.addWaiter("pay_1", () -> kept.complete(null));
+        notifier.removeWaiter("pay_1", callback);
+        
+        listener.onMessage("payment-status", "pay_1");
+        
+        kept.get(5, TimeUnit.SECONDS);
+        assertThat(removed).isNotDone();
+    }
+}
@@ -0,0 +1,57 @@
+package com.gateway.service;
+
+import com.gateway.dto.CreateRefundRequest;
+import com.gateway.dto.RefundResponse;
+import com.gateway.model.Merchant;
+import com.gateway.model.Refund;
+import com.gateway.repository.PaymentRepository;
+import com.gateway.repository.RefundRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RefundServiceTest {
+    
+    @Mock
+    private RefundRepository refundRepository;
+    
+    @Mock
+    private PaymentRepository paymentRepository;
+    
+    @Mock
+    private JobQueueService jobQueueService;
+    
+    private RefundService refundService;
+    private Merchant merchant;
+    
+    @BeforeEach
+    void setUp() {
+        refundService = new RefundService(refundRepository, paymentRepository, jobQueueService, new IdGenerator());
+        merchant = new Merchant();
+        merchant.setId(UUID.randomUUID());
+    }
+    
+    @Test
+    void createRefundBuildsResponseBeforeFlush() {
+        when(paymentRepository.reserveRefundAmount("pay_test", merchant.getId(), 1000)).thenReturn(1);
+        when(refundRepository.save(any(Refund.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        
+        RefundResponse response = refundService.createRefund(merchant, "pay_test", new CreateRefundRequest(1000, "damaged"));
+        
+        assertThat(response.getId()).startsWith("rfnd_");
+        assertThat(response.getStatus()).isEqualTo("pending");
+        assertThat(response.getCreatedAt()).isNotNull();
+        assertThat(response.getProcessedAt()).isNull();
+        verify(jobQueueService).enqueueRefundJob(response.getId());
+    }
+}
@@ -0,0 +1,64 @@
+package com.gateway.service;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class WebhookSignerTest {
+    
+    private static final byte[] PAYLOAD = "{\"event\":\"payment.success\"}".getBytes(StandardCharsets.UTF_8);
+    
+    private final MerchantChangeNotifier merchantChangeNotifier = mock(MerchantChangeNotifier.class);
+    private final WebhookSigner signer = new WebhookSigner(merchantChangeNotifier);
+    
+    @Test
+    void cachedKeyProducesSameSignatureAsFreshMac() throws Exception {
+        UUID merchantId = UUID.randomUUID();
+        
+        String first = signer.sign(merchantId, "secret-1", PAYLOAD);
+        String second = signer.sign(merchantId, "secret-1", PAYLOAD);
+        
+        assertThat(first).isEqualTo(hmac("secret-1")).isEqualTo(second);
+    }
+    
+    @Test
+    void rotatedSecretReplacesCachedKey() throws Exception {
+        UUID merchantId = UUID.randomUUID();
+        signer.sign(merchantId, "secret-1", PAYLOAD);
+        
+        assertThat(signer.sign(merchantId, "secret-2", PAYLOAD)).isEqualTo(hmac("secret-2"));
+    }
+    
+    @Test
+    void merchantChangeDropsCachedKey() throws Exception {
+        signer.subscribe();
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Consumer<UUID>> listener = ArgumentCaptor.forClass(Consumer.class);
+        verify(merchantChangeNotifier).addListener(listener.capture());
+        
+        UUID merchantId = UUID.randomUUID();
+        signer.sign(merchantId, "secret-1", PAYLOAD);
+        assertThat(signer.hasCachedKey(merchantId)).isTrue();
+        
+        listener.getValue().accept(merchantId);
+        
+        assertThat(signer.hasCachedKey(merchantId)).isFalse();
+        assertThat(signer.sign(merchantId, "secret-1", PAYLOAD)).isEqualTo(hmac("secret-1"));
+    }
+    
+    private static String hmac(String secret) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return HexFormat.of().formatHex(mac.doFinal(PAYLOAD));
+    }
+}
@@ -0,0 +1,92 @@
+package com.gateway.workers;
+
+import com.gateway.config.AppConfig;
+import com.gateway.jobs.ProcessPaymentJob;
+import com.gateway.model.Payment;
+import com.gateway.repository.PaymentRepository;
+import com.gateway.service.JobQueueService;
+import com.gateway.service.PaymentStatusNotifier;
+import com.gateway.service.WebhookService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentWorkerTest {
+    
+    @Mock
+    private PaymentRepository paymentRepository;
+    
+    @Mock
+    private WebhookService webhookService;
+    
+    @Mock
+    private PaymentStatusNotifier paymentStatusNotifier;
+    
+    @Mock
+    private JobQueueService jobQueueService;
+    
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    
+    @Mock
+    private AppConfig appConfig;
+    
+    private PaymentWorker paymentWorker;
+    
+    @BeforeEach
+    void setUp() {
+        paymentWorker = new PaymentWorker(paymentRepository, webhookService, paymentStatusNotifier, jobQueueService,
+                new TransactionTemplate(transactionManager), appConfig);
+    }
+    
+    // A re-delivered job whose payment was already completed must not produce a second webhook
+    @Test
+    void flushSendsWebhooksOnlyForPaymentsStillPending() {
+        Payment fresh = payment("pay_fresh", "success");
+        Payment redelivered = payment("pay_redelivered", "failed");
+        when(paymentRepository.batchUpdateStatus(List.of(fresh, redelivered))).thenReturn(List.of(fresh));
+        
+        paymentWorker.flushCompletedPayments(List.of(fresh, redelivered));
+        
+        verify(webhookService).createWebhook(fresh.getMerchantId(), "payment.success", fresh);
+        verify(webhookService, never()).createWebhook(any(), anyString(), eq(redelivered));
+        verify(paymentStatusNotifier).publish(List.of("pay_fresh"));
+        verify(jobQueueService).ack(JobQueueService.PAYMENT_QUEUE, new ProcessPaymentJob("pay_fresh"));
+        verify(jobQueueService).ack(JobQueueService.PAYMENT_QUEUE, new ProcessPaymentJob("pay_redelivered"));
+    }
+    
+    @Test
+    void flushRequeuesBatchWhenWriteFails() {
+        Payment payment = payment("pay_1", "success");
+        when(paymentRepository.batchUpdateStatus(List.of(payment))).thenThrow(new RuntimeException("connection reset"));
+        
+        paymentWorker.flushCompletedPayments(List.of(payment));
+        
+        verify(jobQueueService).requeue(JobQueueService.PAYMENT_QUEUE, new ProcessPaymentJob("pay_1"));
+        verify(jobQueueService, never()).ack(anyString(), any());
+        verify(paymentStatusNotifier, never()).publish(any());
+    }
+    
+    private Payment payment(String id, String status) {
+        Payment payment = new Payment();
+        payment.setId(id);
+        payment.setMerchantId(UUID.randomUUID());
+        payment.setStatus(status);
+        return payment;
+    }
+}
@@ -0,0 +1,84 @@
+package com.gateway.workers;
+
+import com.gateway.config.AppConfig;
+import com.gateway.jobs.ProcessRefundJob;
+import com.gateway.model.Payment;
+import com.gateway.model.Refund;
+import com.gateway.repository.PaymentRepository;
+import com.gateway.repository.RefundRepository;
+import com.gateway.service.JobQueueService;
+import com.gateway.service.WebhookService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RefundWorkerTest {
+    
+    @Mock
+    private RefundRepository refundRepository;
+    
+    @Mock
+    private PaymentRepository paymentRepository;
+    
+    @Mock
+    private WebhookService webhookService;
+    
+    @Mock
+    private JobQueueService jobQueueService;
+    
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    
+    @Mock
+    private AppConfig appConfig;
+    
+    private RefundWorker refundWorker;
+    
+    @BeforeEach
+    void setUp() {
+        refundWorker = new RefundWorker(refundRepository, paymentRepository, webhookService, jobQueueService,
+                new TransactionTemplate(transactionManager), appConfig);
+    }
+    
+    @Test
+    void flushSendsWebhooksOnlyForRefundsStillPending() {
+        Payment payment = new Payment();
+        payment.setId("pay_1");
+        Refund fresh = refund("rfnd_fresh");
+        Refund redelivered = refund("rfnd_redelivered");
+        when(refundRepository.batchUpdateStatus(List.of(fresh, redelivered))).thenReturn(List.of(fresh));
+        
+        refundWorker.flushProcessedRefunds(List.of(
+                new RefundWorker.ProcessedRefund(fresh, payment),
+                new RefundWorker.ProcessedRefund(redelivered, payment)));
+        
+        verify(webhookService).createRefundWebhook(fresh.getMerchantId(), "refund.processed", fresh, payment);
+        verify(webhookService, never()).createRefundWebhook(any(), anyString(), eq(redelivered), any());
+        verify(jobQueueService).ack(JobQueueService.REFUND_QUEUE, new ProcessRefundJob("rfnd_fresh"));
+        verify(jobQueueService).ack(JobQueueService.REFUND_QUEUE, new ProcessRefundJob("rfnd_redelivered"));
+    }
+    
+    private Refund refund(String id) {
+        Refund refund = new Refund();
+        refund.setId(id);
+        refund.setPaymentId("pay_1");
+        refund.setMerchantId(UUID.randomUUID());
+        refund.setStatus("processed");
+        return refund;
+    }
+}
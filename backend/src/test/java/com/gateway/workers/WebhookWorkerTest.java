@@ -0,0 +1,90 @@
+package com.gateway.workers;
+
+import com.gateway.config.AppConfig;
+import com.gateway.jobs.DeliverWebhookJob;
+import com.gateway.model.WebhookLog;
+import com.gateway.repository.WebhookLogRepository;
+import com.gateway.service.JobQueueService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.longThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class WebhookWorkerTest {
+    
+    @Mock
+    private WebhookLogRepository webhookLogRepository;
+    
+    @Mock
+    private MerchantSnapshotCache merchantSnapshotCache;
+    
+    @Mock
+    private JobQueueService jobQueueService;
+    
+    @Mock
+    private WebhookDeliveryEngine deliveryEngine;
+    
+    @Mock
+    private AppConfig appConfig;
+    
+    private WebhookWorker webhookWorker;
+    
+    @BeforeEach
+    void setUp() {
+        webhookWorker = new WebhookWorker(webhookLogRepository, merchantSnapshotCache, jobQueueService, deliveryEngine,
+                appConfig);
+    }
+    
+    @Test
+    void flushSchedulesRetriesAfterResultsAreSaved() {
+        WebhookLog delivered = webhookLog("success", null);
+        WebhookLog retry = webhookLog("pending", LocalDateTime.now().plusSeconds(60));
+        
+        webhookWorker.flushDeliveryResults(List.of(delivered, retry));
+        
+        InOrder order = inOrder(webhookLogRepository, jobQueueService);
+        order.verify(webhookLogRepository).batchUpdateDelivery(List.of(delivered, retry));
+        order.verify(jobQueueService).scheduleWebhookJob(eq(retry.getId()), longThat(delay -> delay > 55000 && delay <= 60000));
+        order.verify(jobQueueService).ack(JobQueueService.WEBHOOK_QUEUE, new DeliverWebhookJob(retry.getId()));
+        verify(jobQueueService, never()).scheduleWebhookJob(eq(delivered.getId()), anyLong());
+        verify(jobQueueService).ack(JobQueueService.WEBHOOK_QUEUE, new DeliverWebhookJob(delivered.getId()));
+    }
+    
+    // Acking here would drop the attempt, leaving the log pending with no job left to deliver it
+    @Test
+    void flushRequeuesWithoutAckWhenWriteFails() {
+        WebhookLog retry = webhookLog("pending", LocalDateTime.now().plusSeconds(60));
+        doThrow(new RuntimeException("connection reset")).when(webhookLogRepository).batchUpdateDelivery(List.of(retry));
+        
+        webhookWorker.flushDeliveryResults(List.of(retry));
+        
+        verify(jobQueueService).requeue(JobQueueService.WEBHOOK_QUEUE, new DeliverWebhookJob(retry.getId()));
+        verify(jobQueueService, never()).ack(anyString(), any());
+        verify(jobQueueService, never()).scheduleWebhookJob(any(), anyLong());
+    }
+    
+    private WebhookLog webhookLog(String status, LocalDateTime nextRetryAt) {
+        WebhookLog webhookLog = new WebhookLog();
+        webhookLog.setId(UUID.randomUUID());
+        webhookLog.setStatus(status);
+        webhookLog.setNextRetryAt(nextRetryAt);
+        return webhookLog;
+    }
+}
@@ -99,45 +99,54 @@ function CheckoutForm() {
   };
   
   const pollPaymentStatus = async (paymentId) => {
-    let attempts = 0;
-    const maxAttempts = 30; // 30 seconds
+    // Each request is held by the server until the payment leaves pending (or ~25 seconds pass);
+    // the last one is cut short so the customer waits at most 30 seconds in total
+    const deadline = Date.now() + 30000;
     
-    const poll = setInterval(async () => {
-      attempts++;
-      
-      try {
-        const response = await fetch(`http://localhost:8000/api/v1/payments/${paymentId}`, {
-          headers: {
-            'X-Api-Key': apiKey,
-            'X-Api-Secret': 'secret_test_xyz789'
+    try {
+      while (true) {
+        const controller = new AbortController();
+        const timer = setTimeout(() => controller.abort(), Math.max(0, deadline - Date.now()));
+        let payment;
+        try {
+          const response = await fetch(`http://localhost:8000/api/v1/payments/${paymentId}/wait`, {
+            headers: {
+              'X-Api-Key': apiKey,
+              'X-Api-Secret': 'secret_test_xyz789'
+            },
+            signal: controller.signal
+          });
+          
+          if (!response.ok) {
+            throw new Error('Status request failed');
           }
-        });
-        
-        const payment = await response.json();
+          payment = await response.json();
+        } finally {
+          clearTimeout(timer);
+        }
         
         if (payment.status === 'success') {
-          clearInterval(poll);
           setLoading(false);
           sendMessageToParent('payment_success', { paymentId: payment.id });
+          return;
         } else if (payment.status === 'failed') {
-          clearInterval(poll);
           setLoading(false);
           setError('Payment failed: ' + (payment.error_description || 'Unknown error'));
           sendMessageToParent('payment_failed', { 
             paymentId: payment.id,
             error: payment.error_description 
           });
-        } else if (attempts >= maxAttempts) {
-          clearInterval(poll);
+          return;
+        } else if (Date.now() >= deadline) {
           setLoading(false);
           setError('Payment timeout');
+          return;
         }
-      } catch (err) {
-        clearInterval(poll);
-        setLoading(false);
-        setError('Failed to check payment status');
       }
-    }, 1000);
+    } catch (err) {
+      setLoading(false);
+      setError(err.name === 'AbortError' ? 'Payment timeout' : 'Failed to check payment status');
+    }
   };
   
   return (
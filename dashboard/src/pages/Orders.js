@@ -5,14 +5,19 @@ const API_SECRET = 'secret_test_xyz789';
 
 function Orders() {
   const [orders, setOrders] = useState([]);
+  const [nextCursor, setNextCursor] = useState(null);
+  const [loading, setLoading] = useState(false);
   
   useEffect(() => {
     fetchOrders();
   }, []);
   
-  const fetchOrders = async () => {
+  // The API returns one page at a time; X-Next-Cursor points at the next one
+  const fetchOrders = async (after) => {
+    setLoading(true);
     try {
-      const response = await fetch('/api/v1/orders', {
+      const url = after ? `/api/v1/orders?after=${encodeURIComponent(after)}` : '/api/v1/orders';
+      const response = await fetch(url, {
         headers: {
           'X-Api-Key': API_KEY,
           'X-Api-Secret': API_SECRET
@@ -21,10 +26,13 @@ function Orders() {
       
       if (response.ok) {
         const data = await response.json();
-        setOrders(data);
+        setOrders((previous) => (after ? [...previous, ...data] : data));
+        setNextCursor(response.headers.get('X-Next-Cursor'));
       }
     } catch (error) {
       console.error('Failed to fetch orders:', error);
+    } finally {
+      setLoading(false);
     }
   };
   
@@ -70,6 +78,19 @@ function Orders() {
             )}
           </tbody>
         </table>
+        {nextCursor && (
+          <div style={{ textAlign: 'center', padding: '16px' }}>
+            <button
+              type="button"
+              className="btn btn-secondary"
+              data-test-id="load-more-orders-button"
+              disabled={loading}
+              onClick={() => fetchOrders(nextCursor)}
+            >
+              {loading ? 'Loading...' : 'Load more'}
+            </button>
+          </div>
+        )}
       </div>
     </div>
   );
@@ -5,14 +5,19 @@ const API_SECRET = 'secret_test_xyz789';
 
 function Payments() {
   const [payments, setPayments] = useState([]);
+  const [nextCursor, setNextCursor] = useState(null);
+  const [loading, setLoading] = useState(false);
   
   useEffect(() => {
     fetchPayments();
   }, []);
   
-  const fetchPayments = async () => {
+  // The API returns one page at a time; X-Next-Cursor points at the next one
+  const fetchPayments = async (after) => {
+    setLoading(true);
     try {
-      const response = await fetch('/api/v1/payments', {
+      const url = after ? `/api/v1/payments?after=${encodeURIComponent(after)}` : '/api/v1/payments';
+      const response = await fetch(url, {
         headers: {
           'X-Api-Key': API_KEY,
           'X-Api-Secret': API_SECRET
@@ -21,10 +26,13 @@ function Payments() {
       
       if (response.ok) {
         const data = await response.json();
-        setPayments(data);
+        setPayments((previous) => (after ? [...previous, ...data] : data));
+        setNextCursor(response.headers.get('X-Next-Cursor'));
       }
     } catch (error) {
       console.error('Failed to fetch payments:', error);
+    } finally {
+      setLoading(false);
     }
   };
   
@@ -72,6 +80,19 @@ function Payments() {
             )}
           </tbody>
         </table>
+        {nextCursor && (
+          <div style={{ textAlign: 'center', padding: '16px' }}>
+            <button
+              type="button"
+              className="btn btn-secondary"
+              data-test-id="load-more-payments-button"
+              disabled={loading}
+              onClick={() => fetchPayments(nextCursor)}
+            >
+              {loading ? 'Loading...' : 'Load more'}
+            </button>
+          </div>
+        )}
       </div>
     </div>
   );